@@ -0,0 +1,44 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.dominio.Banco;
+import br.univali.cc.prog3.banco.dominio.Cliente;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Banco compartilhado por todas as threads do benchmark, com as contas
+ * 1..contas já criadas, cada uma com um titular (CPF) diferente. As contas
+ * correntes têm limite alto para que os saques nunca falhem por saldo,
+ * qualquer que seja a duração da medição.
+ *
+ * Com 10M contas o heap precisa de alguns GB: rodar com -jvmArgsAppend -Xmx8g.
+ */
+@State(Scope.Benchmark)
+public class BancoPopulado {
+    static final double SALDO_INICIAL = 1000.0;
+    static final double LIMITE = 1_000_000_000.0;
+
+    @Param({"1000", "100000", "10000000"})
+    int contas;
+
+    Banco banco;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        banco = new Banco("Banco", "Benchmark", 1);
+        // um titular por conta, como num banco real: o cadastro por CPF também entra no tamanho do heap
+        for (int numero = 1; numero <= contas; numero++) {
+            Cliente titular = new Cliente("Titular", ValidaCPFBenchmark.gerar_valido(numero));
+            banco.criar_conta(numero, SALDO_INICIAL, LIMITE, titular);
+        }
+    }
+
+    /** Número de conta uniforme em 1..contas. */
+    int sortear_conta(ThreadLocalRandom aleatorio) {
+        return 1 + aleatorio.nextInt(contas);
+    }
+}
@@ -0,0 +1,78 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.dominio.Banco;
+import br.univali.cc.prog3.banco.dominio.Cliente;
+import br.univali.cc.prog3.banco.dominio.MotorParticionado;
+import br.univali.cc.prog3.banco.dominio.ResultadoOperacao;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Todas as threads depositando na mesma conta (conta de lojista/folha):
+ * direto no Banco, onde as threads disputam o CAS do saldo e a trava do
+ * extrato, contra o MotorParticionado, onde só a thread dona da partição
+ * escreve na conta, e contra a conta em modo quente, onde cada depósito só
+ * soma numa célula de LongAdder. No motor, cada chamada espera o próprio resultado.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g"})
+@Threads(Threads.MAX)
+public class ContaQuenteBenchmark {
+    private static final int CONTA_QUENTE = 1;
+    private static final double VALOR = 1.25;
+
+    @State(Scope.Benchmark)
+    public static class Estado {
+        Banco banco;
+        MotorParticionado motor;
+        Banco banco_quente;
+
+        @Setup(Level.Trial)
+        public void preparar() throws Exception {
+            banco = new Banco("Banco", "Benchmark", 1);
+            banco.criar_conta(CONTA_QUENTE, 0.0, new Cliente("Lojista", "12345678909"));
+            motor = new MotorParticionado(banco);
+            banco_quente = new Banco("Banco", "Benchmark", 1);
+            banco_quente.criar_conta(CONTA_QUENTE, 0.0, new Cliente("Lojista", "12345678909"));
+            banco_quente.marcar_conta_quente(CONTA_QUENTE);
+            banco_quente.agendar_consolidacao_depositos(10, TimeUnit.MILLISECONDS);
+        }
+
+        @TearDown(Level.Trial)
+        public void encerrar() {
+            motor.close();
+        }
+    }
+
+    @Benchmark
+    public ResultadoOperacao banco_direto(Estado estado) {
+        return estado.banco.tentar_depositar(CONTA_QUENTE, VALOR);
+    }
+
+    @Benchmark
+    public ResultadoOperacao modo_quente(Estado estado) {
+        return estado.banco_quente.tentar_depositar(CONTA_QUENTE, VALOR);
+    }
+
+    @Benchmark
+    public ResultadoOperacao motor_particionado(Estado estado) {
+        CompletableFuture<ResultadoOperacao> resultado = estado.motor.depositar(CONTA_QUENTE, VALOR);
+        return resultado.join();
+    }
+}
@@ -0,0 +1,57 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.dominio.Cliente;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Criação de contas novas num banco que já tem BancoPopulado.contas contas,
+ * com uma thread e com uma thread por núcleo. Os números novos vêm de um
+ * contador compartilhado, então nunca colidem, e cada conta tem um titular
+ * próprio, com CPF derivado do número (como em BancoPopulado): a medida inclui
+ * o cadastro de um cliente novo, e não só mais uma conta para o mesmo cliente.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g"})
+public class CriacaoContaBenchmark {
+    @State(Scope.Benchmark)
+    public static class Numeracao {
+        final AtomicInteger proximo_numero = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void preparar(BancoPopulado estado) {
+            proximo_numero.set(estado.contas + 1);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void criar_conta(BancoPopulado estado, Numeracao numeracao) throws Exception {
+        criar(estado, numeracao.proximo_numero.getAndIncrement());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void criar_conta_concorrente(BancoPopulado estado, Numeracao numeracao) throws Exception {
+        criar(estado, numeracao.proximo_numero.getAndIncrement());
+    }
+
+    private static void criar(BancoPopulado estado, int numero) throws Exception {
+        estado.banco.criar_conta(numero, 100.0, new Cliente("Titular", ValidaCPFBenchmark.gerar_valido(numero)));
+    }
+}
@@ -0,0 +1,143 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.dominio.Banco;
+import br.univali.cc.prog3.banco.dominio.Cliente;
+import br.univali.cc.prog3.banco.dominio.ContaBancaria;
+import br.univali.cc.prog3.banco.dominio.ExtratoEntry;
+import br.univali.cc.prog3.banco.dominio.RenderizadorExtrato;
+import br.univali.cc.prog3.banco.utilitario.Formatacao;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Formatação do extrato: a versão antiga (DateTimeFormatter.ofPattern e
+ * String.format a cada linha, reproduzida aqui como referência) contra
+ * Formatacao/RenderizadorExtrato. Rodar com -prof gc para ver a alocação por linha.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatacaoBenchmark {
+    @Param({"1000", "100000"})
+    int movimentacoes;
+
+    private ContaBancaria conta;
+    private List<ExtratoEntry> entradas;
+    private final RenderizadorExtrato renderizador = new RenderizadorExtrato();
+    private Writer descarte;
+
+    @Setup(Level.Trial)
+    public void preparar(Blackhole blackhole) throws Exception {
+        Banco banco = new Banco("Banco", "Benchmark", 1);
+        banco.criar_conta(1, 0.0, new Cliente("Titular", "12345678909"));
+        for (int i = 0; i < movimentacoes; i++) {
+            if (i % 2 == 0) {
+                banco.depositar(1, 10.55);
+            } else {
+                banco.sacar(1, 3.10);
+            }
+        }
+        conta = banco.obter_contas().get(1);
+        entradas = conta.obter_movimentacoes_ordenadas();
+        descarte = new EscritorDescarte(blackhole);
+    }
+
+    @Benchmark
+    public void linha_legado(Blackhole blackhole) {
+        for (ExtratoEntry entrada : entradas) {
+            blackhole.consume(linha_legado(entrada));
+        }
+    }
+
+    @Benchmark
+    public void linha_formatacao(Blackhole blackhole) {
+        for (ExtratoEntry entrada : entradas) {
+            blackhole.consume(entrada.toString());
+        }
+    }
+
+    @Benchmark
+    public String extrato_legado() {
+        StringBuilder sb = new StringBuilder();
+        for (ExtratoEntry entrada : conta.obter_movimentacoes_ordenadas()) {
+            sb.append(linha_legado(entrada)).append("\n");
+        }
+        sb.append("\nSALDO ATUAL: R$ ").append(String.format("%.2f", conta.obter_saldo()));
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String extrato_string() {
+        return conta.emitir_extrato();
+    }
+
+    @Benchmark
+    public void extrato_streaming() throws IOException {
+        renderizador.renderizar(conta, descarte);
+    }
+
+    @Benchmark
+    public String valor_string_format() {
+        return String.format("%.2f", 1234.56);
+    }
+
+    @Benchmark
+    public String valor_formatacao() {
+        return Formatacao.formatarReais(1234.56);
+    }
+
+    // ExtratoEntry.toString como era antes de Formatacao
+    private static String linha_legado(ExtratoEntry entrada) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+        String data_formatada = entrada.obter_data_hora().format(formatter);
+        String tipo_str = (entrada.obter_tipo() == 'C') ? "C" : "D";
+        return String.format("[%s] (%s) %s R$ %.2f", data_formatada, tipo_str, entrada.obter_descricao(),
+                entrada.obter_valor());
+    }
+
+    /** Writer que só entrega os caracteres ao Blackhole, para medir a renderização e não o destino. */
+    private static final class EscritorDescarte extends Writer {
+        private final Blackhole blackhole;
+
+        EscritorDescarte(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(char[] buffer, int inicio, int tamanho) {
+            blackhole.consume(buffer);
+        }
+
+        @Override
+        public void write(String texto) {
+            blackhole.consume(texto);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.dominio.ContaBancaria;
+import br.univali.cc.prog3.banco.dominio.ResultadoOperacao;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Busca de conta por número: o diretório do Banco (exercitado por um saque
+ * sempre rejeitado, que não mexe no saldo nem no extrato) contra um
+ * ConcurrentHashMap<Integer, ContaBancaria> com as mesmas contas, como era antes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g"})
+@Threads(1)
+public class LocalizacaoContaBenchmark {
+    private static final double VALOR_IMPOSSIVEL = BancoPopulado.LIMITE * 10;
+
+    @State(Scope.Benchmark)
+    public static class MapaReferencia {
+        Map<Integer, ContaBancaria> contas;
+
+        @Setup(Level.Trial)
+        public void preparar(BancoPopulado estado) {
+            contas = new ConcurrentHashMap<>(estado.banco.obter_contas());
+        }
+    }
+
+    @Benchmark
+    public ResultadoOperacao diretorio_banco(BancoPopulado estado) {
+        return estado.banco.tentar_sacar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR_IMPOSSIVEL);
+    }
+
+    @Benchmark
+    public boolean concurrent_hash_map(BancoPopulado estado, MapaReferencia referencia) {
+        ContaBancaria conta = referencia.contas.get(estado.sortear_conta(ThreadLocalRandom.current()));
+        return conta.sacar(VALOR_IMPOSSIVEL);
+    }
+}
@@ -0,0 +1,84 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operações do Banco sobre contas sorteadas uniformemente, com uma thread e
+ * com uma thread por núcleo (*_concorrente). Cada operação também anexa ao
+ * extrato, então o custo medido inclui o crescimento do histórico.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g"})
+public class OperacoesBenchmark {
+    private static final double VALOR = 1.25;
+
+    @Benchmark
+    @Threads(1)
+    public void depositar(BancoPopulado estado) throws Exception {
+        estado.banco.depositar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void depositar_concorrente(BancoPopulado estado) throws Exception {
+        estado.banco.depositar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void sacar(BancoPopulado estado) throws Exception {
+        estado.banco.sacar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void sacar_concorrente(BancoPopulado estado) throws Exception {
+        estado.banco.sacar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void transferir(BancoPopulado estado) throws Exception {
+        transferir_entre_sorteadas(estado);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void transferir_concorrente(BancoPopulado estado) throws Exception {
+        transferir_entre_sorteadas(estado);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String emitir_extrato(BancoPopulado estado) throws Exception {
+        return estado.banco.emitir_extrato(estado.sortear_conta(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String emitir_extrato_concorrente(BancoPopulado estado) throws Exception {
+        return estado.banco.emitir_extrato(estado.sortear_conta(ThreadLocalRandom.current()));
+    }
+
+    private static void transferir_entre_sorteadas(BancoPopulado estado) throws Exception {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        int origem = estado.sortear_conta(aleatorio);
+        int destino = estado.sortear_conta(aleatorio);
+        if (origem == destino) {
+            destino = origem == estado.contas ? 1 : origem + 1;
+        }
+        estado.banco.transferir(origem, destino, VALOR);
+    }
+}
@@ -0,0 +1,54 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.dominio.ResultadoOperacao;
+import br.univali.cc.prog3.banco.excecao.BancoException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Custo de uma rejeição (saque acima do saldo + limite): exceção com stack
+ * trace e mensagem formatada, código de resultado, e código de resultado
+ * convertido na exceção pré-alocada.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class RejeicaoBenchmark {
+    private static final double VALOR_IMPOSSIVEL = BancoPopulado.LIMITE * 10;
+
+    @Benchmark
+    public Object sacar_com_excecao(BancoPopulado estado) {
+        try {
+            estado.banco.sacar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR_IMPOSSIVEL);
+            return null;
+        } catch (BancoException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public ResultadoOperacao tentar_sacar(BancoPopulado estado) {
+        return estado.banco.tentar_sacar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR_IMPOSSIVEL);
+    }
+
+    @Benchmark
+    public Object tentar_sacar_e_verificar(BancoPopulado estado) {
+        try {
+            estado.banco.tentar_sacar(estado.sortear_conta(ThreadLocalRandom.current()), VALOR_IMPOSSIVEL).verificar();
+            return null;
+        } catch (BancoException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.utilitario.ResultadoValidacaoLote;
+import br.univali.cc.prog3.banco.utilitario.ValidaCPF;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Importação de um arquivo com um CPF por linha: ValidaCPF.validarArquivo
+ * (mapeado e paralelo) contra ler as linhas como String e validar uma a uma.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValidaCPFArquivoBenchmark {
+    @Param({"1000000", "10000000"})
+    int linhas;
+
+    private Path arquivo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        arquivo = Files.createTempFile("cpfs", ".txt");
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        try (BufferedWriter saida = Files.newBufferedWriter(arquivo, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < linhas; i++) {
+                saida.write(ValidaCPFBenchmark.gerar_valido(aleatorio));
+                saida.write('\n');
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void apagar() throws IOException {
+        Files.deleteIfExists(arquivo);
+    }
+
+    @Benchmark
+    public ResultadoValidacaoLote validar_arquivo() throws IOException {
+        return ValidaCPF.validarArquivo(arquivo);
+    }
+
+    @Benchmark
+    public long ler_linhas_e_validar() throws IOException {
+        try (var linhas_arquivo = Files.lines(arquivo, StandardCharsets.US_ASCII)) {
+            return linhas_arquivo.filter(ValidaCPF::validarCPF).count();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package br.univali.cc.prog3.banco.benchmark;
+
+import br.univali.cc.prog3.banco.utilitario.ValidaCPF;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ValidaCPF.validarCPF sobre uma mistura fixa de CPFs válidos, com dígito
+ * verificador errado e com todos os dígitos iguais: a implementação antiga
+ * (regex + Character.getNumericValue, reproduzida aqui), a atual sobre String
+ * e sobre byte[], e o lote paralelo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidaCPFBenchmark {
+    private static final int TOTAL_CPFS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Cpfs {
+        String[] cpfs;
+        byte[] ascii;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            SplittableRandom aleatorio = new SplittableRandom(42);
+            cpfs = new String[TOTAL_CPFS];
+            for (int i = 0; i < TOTAL_CPFS; i++) {
+                String valido = gerar_valido(aleatorio);
+                switch (i % 4) {
+                    case 0:
+                        // dígito verificador trocado
+                        char errado = (char) ('0' + (valido.charAt(10) - '0' + 1) % 10);
+                        cpfs[i] = valido.substring(0, 10) + errado;
+                        break;
+                    case 1:
+                        cpfs[i] = String.valueOf((char) ('0' + i % 10)).repeat(11);
+                        break;
+                    default:
+                        cpfs[i] = valido;
+                }
+            }
+            ascii = String.join("", cpfs).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void validar(Cpfs estado, Blackhole blackhole) {
+        for (String cpf : estado.cpfs) {
+            blackhole.consume(ValidaCPF.validarCPF(cpf));
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void validar_concorrente(Cpfs estado, Blackhole blackhole) {
+        for (String cpf : estado.cpfs) {
+            blackhole.consume(ValidaCPF.validarCPF(cpf));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void validar_legado(Cpfs estado, Blackhole blackhole) {
+        for (String cpf : estado.cpfs) {
+            blackhole.consume(validar_legado(cpf));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void validar_bytes(Cpfs estado, Blackhole blackhole) {
+        byte[] ascii = estado.ascii;
+        for (int inicio = 0; inicio < ascii.length; inicio += ValidaCPF.TAMANHO_CPF) {
+            blackhole.consume(ValidaCPF.validarCPF(ascii, inicio));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean[] validar_em_lote(Cpfs estado) {
+        return ValidaCPF.validarEmLote(estado.cpfs);
+    }
+
+    // ValidaCPF.validarCPF como era antes da versão por tabela
+    private static boolean validar_legado(String cpf) {
+        if (cpf == null || cpf.length() != 11) {
+            return false;
+        }
+        if (cpf.matches("(\\d)\\1{10}")) {
+            return false;
+        }
+        int soma = 0;
+        for (int i = 0; i < 9; i++) {
+            soma += Character.getNumericValue(cpf.charAt(i)) * (10 - i);
+        }
+        int resto = soma % 11;
+        int digito1 = (resto < 2) ? 0 : 11 - resto;
+        if (digito1 != Character.getNumericValue(cpf.charAt(9))) {
+            return false;
+        }
+        soma = 0;
+        for (int i = 0; i < 10; i++) {
+            soma += Character.getNumericValue(cpf.charAt(i)) * (11 - i);
+        }
+        resto = soma % 11;
+        int digito2 = (resto < 2) ? 0 : 11 - resto;
+        return digito2 == Character.getNumericValue(cpf.charAt(10));
+    }
+
+    static String gerar_valido(SplittableRandom aleatorio) {
+        int[] digitos = new int[11];
+        for (int i = 0; i < 9; i++) {
+            digitos[i] = aleatorio.nextInt(10);
+        }
+        return completar(digitos);
+    }
+
+    /** CPF válido cujos 9 primeiros dígitos são base (0 < base < 10^9), com zeros à esquerda. */
+    static String gerar_valido(int base) {
+        int[] digitos = new int[11];
+        for (int i = 8; i >= 0; i--) {
+            digitos[i] = base % 10;
+            base /= 10;
+        }
+        return completar(digitos);
+    }
+
+    private static String completar(int[] digitos) {
+        digitos[9] = digito_verificador(digitos, 9);
+        digitos[10] = digito_verificador(digitos, 10);
+        StringBuilder sb = new StringBuilder(11);
+        for (int digito : digitos) {
+            sb.append(digito);
+        }
+        return sb.toString();
+    }
+
+    private static int digito_verificador(int[] digitos, int quantidade) {
+        int soma = 0;
+        for (int i = 0; i < quantidade; i++) {
+            soma += digitos[i] * (quantidade + 1 - i);
+        }
+        int resto = soma % 11;
+        return resto < 2 ? 0 : 11 - resto;
+    }
+}
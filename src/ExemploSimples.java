@@ -8,7 +8,7 @@ public class ExemploSimples {
 
         try {
             Banco banco = new Banco("Banco Teste", "Slogan", 1);
-            Cliente cliente = new Cliente("João Silva", "12345678901");
+            Cliente cliente = new Cliente("João Silva", "12345678909");
             banco.criar_conta(1001, 1000.0, cliente);
             System.out.println("Conta criada com sucesso!");
             banco.depositar(1001, 500.0);
@@ -1,6 +1,51 @@
 import br.univali.cc.prog3.banco.dominio.Banco;
+import br.univali.cc.prog3.banco.dominio.BancoAssincrono;
 import br.univali.cc.prog3.banco.dominio.Cliente;
+import br.univali.cc.prog3.banco.dominio.ConsultaExtrato;
+import br.univali.cc.prog3.banco.dominio.ContaBancaria;
+import br.univali.cc.prog3.banco.dominio.ExtratoEntry;
+import br.univali.cc.prog3.banco.dominio.MotorParticionado;
+import br.univali.cc.prog3.banco.dominio.Movimentacao;
+import br.univali.cc.prog3.banco.dominio.OperacaoLote;
+import br.univali.cc.prog3.banco.dominio.PaginaExtrato;
+import br.univali.cc.prog3.banco.dominio.RenderizadorExtrato;
+import br.univali.cc.prog3.banco.dominio.ResultadoOperacao;
+import br.univali.cc.prog3.banco.dominio.ResumoRendimento;
 import br.univali.cc.prog3.banco.excecao.*;
+import br.univali.cc.prog3.banco.persistencia.DiarioMovimentacoes;
+import br.univali.cc.prog3.banco.persistencia.ExtratoMapeado;
+import br.univali.cc.prog3.banco.servico.BancoServico;
+import br.univali.cc.prog3.banco.servico.CacheIdempotencia;
+import br.univali.cc.prog3.banco.servico.ServidorHttp;
+import br.univali.cc.prog3.banco.utilitario.DataHora;
+import br.univali.cc.prog3.banco.utilitario.Formatacao;
+import br.univali.cc.prog3.banco.utilitario.ResultadoValidacaoLote;
+import br.univali.cc.prog3.banco.utilitario.ValidaCPF;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class TesteSistemaBancario {
     public static void main(String[] args) {
@@ -115,6 +160,846 @@ public class TesteSistemaBancario {
                 System.out.println("   ✓ Exceção lançada corretamente: " + e.getMessage());
             }
 
+            System.out.println("\n4. Testando operações concorrentes...");
+            double saldo_antes_1001 = banco.obter_contas().get(1001).obter_saldo();
+            double saldo_antes_1002 = banco.obter_contas().get(1002).obter_saldo();
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                final int numero = (t % 2 == 0) ? 1001 : 1002;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        try {
+                            banco.depositar(numero, 1.0);
+                        } catch (BancoException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double saldo_depois_1001 = banco.obter_contas().get(1001).obter_saldo();
+            double saldo_depois_1002 = banco.obter_contas().get(1002).obter_saldo();
+            if (saldo_depois_1001 == saldo_antes_1001 + 4000.0 && saldo_depois_1002 == saldo_antes_1002 + 4000.0) {
+                System.out.println("   ✓ 8000 depósitos paralelos aplicados sem perda");
+            } else {
+                System.out.println("   ERRO: depósitos perdidos! 1001=" + saldo_depois_1001 + " 1002=" + saldo_depois_1002);
+            }
+
+            double total_antes = banco.obter_contas().get(1001).obter_saldo() + banco.obter_contas().get(1002).obter_saldo();
+            Thread[] transferencias = new Thread[16];
+            for (int t = 0; t < transferencias.length; t++) {
+                final int origem = (t % 2 == 0) ? 1001 : 1002;
+                final int destino = (t % 2 == 0) ? 1002 : 1001;
+                transferencias[t] = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        try {
+                            banco.transferir(origem, destino, 1.0);
+                        } catch (SaldoInsuficienteException e) {
+                            // aceitável: a conta de origem pode esvaziar durante a tempestade
+                        } catch (BancoException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+                transferencias[t].start();
+            }
+            for (Thread thread : transferencias) {
+                thread.join();
+            }
+            double total_depois = banco.obter_contas().get(1001).obter_saldo() + banco.obter_contas().get(1002).obter_saldo();
+            if (total_depois == total_antes) {
+                System.out.println("   ✓ 16000 transferências cruzadas sem deadlock e sem perda de saldo");
+            } else {
+                System.out.println("   ERRO: saldo total mudou de " + total_antes + " para " + total_depois);
+            }
+
+            System.out.println("\n5. Testando operações em lote...");
+            double saldo_lote_1002 = banco.obter_contas().get(1002).obter_saldo();
+            List<OperacaoLote> lote = Arrays.asList(
+                    OperacaoLote.deposito(1002, 100.0),
+                    OperacaoLote.saque(1002, 1000000.0),
+                    OperacaoLote.deposito(9999, 10.0),
+                    OperacaoLote.transferencia(1002, 1001, 50.0),
+                    OperacaoLote.saque(1002, -5.0));
+            ResultadoOperacao[] resultados = banco.executar_lote(lote);
+            ResultadoOperacao[] esperados = {
+                    ResultadoOperacao.SUCESSO,
+                    ResultadoOperacao.SALDO_INSUFICIENTE,
+                    ResultadoOperacao.CONTA_INEXISTENTE,
+                    ResultadoOperacao.SUCESSO,
+                    ResultadoOperacao.VALOR_INVALIDO};
+            if (Arrays.equals(resultados, esperados)
+                    && banco.obter_contas().get(1002).obter_saldo() == saldo_lote_1002 + 50.0) {
+                System.out.println("   ✓ Lote aplicado com resultado por item: " + Arrays.toString(resultados));
+            } else {
+                System.out.println("   ERRO: resultados do lote inesperados: " + Arrays.toString(resultados));
+            }
+            banco.criar_conta(1010, 0.0, cliente2);
+            ResultadoOperacao[] recebe_e_saca = banco.executar_lote(Arrays.asList(
+                    OperacaoLote.transferencia(1001, 1010, 20.0),
+                    OperacaoLote.saque(1010, 20.0)));
+            ResultadoOperacao[] saca_e_recebe = banco.executar_lote(Arrays.asList(
+                    OperacaoLote.saque(1010, 20.0),
+                    OperacaoLote.transferencia(1001, 1010, 20.0)));
+            if (recebe_e_saca[0].sucesso() && recebe_e_saca[1].sucesso()
+                    && saca_e_recebe[0] == ResultadoOperacao.SALDO_INSUFICIENTE && saca_e_recebe[1].sucesso()
+                    && banco.obter_conta(1010).obter_saldo() == 20.0) {
+                System.out.println("   ✓ Itens da mesma conta aplicados na ordem do lote, com transferências no meio");
+            } else {
+                System.out.println("   ERRO: lote fora de ordem: " + Arrays.toString(recebe_e_saca) + " "
+                        + Arrays.toString(saca_e_recebe));
+            }
+
+            System.out.println("\n6. Testando diário de movimentações...");
+            Path pasta_diario = Files.createTempDirectory("banco-diario");
+            Banco banco_persistente = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario = new DiarioMovimentacoes(pasta_diario);
+            banco_persistente.anexar_diario(diario);
+            banco_persistente.criar_conta(2001, 100.0, cliente1);
+            banco_persistente.criar_conta(2002, 0.0, 50.0, cliente2);
+            banco_persistente.depositar(2001, 25.5);
+            banco_persistente.transferir(2001, 2002, 120.0);
+            banco_persistente.sacar(2002, 160.0);
+            String extrato_original = banco_persistente.emitir_extrato(2001) + banco_persistente.emitir_extrato(2002);
+            diario.close();
+
+            Banco banco_recuperado = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_reaberto = new DiarioMovimentacoes(pasta_diario);
+            banco_recuperado.anexar_diario(diario_reaberto);
+            String extrato_recuperado = banco_recuperado.emitir_extrato(2001) + banco_recuperado.emitir_extrato(2002);
+            if (extrato_recuperado.equals(extrato_original)) {
+                System.out.println("   ✓ Contas e extratos reconstruídos a partir do diário");
+            } else {
+                System.out.println("   ERRO: estado recuperado difere do original:\n" + extrato_recuperado);
+            }
+            Path pasta_queda = Files.createTempDirectory("banco-queda");
+            Banco banco_queda = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_queda = new DiarioMovimentacoes(pasta_queda);
+            banco_queda.anexar_diario(diario_queda);
+            banco_queda.criar_conta(2101, 100.0, cliente1);
+            banco_queda.criar_conta(2102, 0.0, cliente2);
+            banco_queda.criar_conta(2103, 0.0, new Cliente(null, "11144477735"));
+            banco_queda.transferir(2101, 2102, 30.0);
+            diario_queda.close();
+            // queda no meio da gravação: o último registro (a transferência) fica incompleto
+            try (java.util.stream.Stream<Path> arquivos = Files.list(pasta_queda);
+                    FileChannel segmento = FileChannel.open(arquivos.findFirst().get(), StandardOpenOption.WRITE)) {
+                segmento.truncate(segmento.size() - 1);
+            }
+            Banco banco_pos_queda = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_pos_queda = new DiarioMovimentacoes(pasta_queda);
+            banco_pos_queda.anexar_diario(diario_pos_queda);
+            if (banco_pos_queda.obter_conta(2101).obter_saldo() == 100.0
+                    && banco_pos_queda.obter_conta(2102).obter_saldo() == 0.0) {
+                System.out.println("   ✓ Transferência interrompida não aparece pela metade na recuperação");
+            } else {
+                System.out.println("   ERRO: transferência recuperada pela metade: "
+                        + banco_pos_queda.obter_conta(2101).obter_saldo() + " / "
+                        + banco_pos_queda.obter_conta(2102).obter_saldo());
+            }
+            boolean nome_longo_recusado = false;
+            try {
+                new Cliente("x".repeat(Cliente.TAMANHO_MAXIMO_NOME + 1), "01234567890");
+            } catch (IllegalArgumentException e) {
+                nome_longo_recusado = true;
+            }
+            banco_pos_queda.gravar_instantaneo();
+            if (banco_pos_queda.obter_conta(2103).obter_titular().obter_nome().isEmpty() && nome_longo_recusado) {
+                System.out.println("   ✓ Titular sem nome gravado como nome vazio; nome longo demais recusado");
+            } else {
+                System.out.println("   ERRO: nome do titular mal tratado na persistência");
+            }
+            diario_pos_queda.close();
+            // sem a pasta do diário a rotação falha; daí em diante nada muda nas contas nem trava
+            Path pasta_perdida = Files.createTempDirectory("banco-diario-perdido");
+            Banco banco_sem_disco = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_perdido = new DiarioMovimentacoes(pasta_perdida);
+            banco_sem_disco.anexar_diario(diario_perdido);
+            banco_sem_disco.criar_conta(2201, 50.0, cliente1);
+            try (java.util.stream.Stream<Path> arquivos = Files.list(pasta_perdida)) {
+                for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                    Files.delete(arquivo);
+                }
+            }
+            Files.delete(pasta_perdida);
+            int falhas_diario = 0;
+            for (int i = 0; i < 2; i++) {
+                try {
+                    banco_sem_disco.gravar_instantaneo();
+                } catch (UncheckedIOException | IOException e) {
+                    falhas_diario++;
+                }
+            }
+            try {
+                banco_sem_disco.depositar(2201, 10.0);
+            } catch (UncheckedIOException e) {
+                falhas_diario++;
+            }
+            if (falhas_diario == 3 && banco_sem_disco.obter_conta(2201).obter_saldo() == 50.0) {
+                System.out.println("   ✓ Diário com falha recusa movimentações antes de alterar a conta");
+            } else {
+                System.out.println("   ERRO: diário com falha: " + falhas_diario + " falhas, saldo "
+                        + banco_sem_disco.obter_conta(2201).obter_saldo());
+            }
+
+            System.out.println("\n7. Testando instantâneo e compactação do diário...");
+            banco_recuperado.gravar_instantaneo();
+            banco_recuperado.depositar(2002, 10.0);
+            banco_recuperado.gravar_instantaneo();
+            banco_recuperado.depositar(2001, 1.0);
+            String extrato_com_instantaneo = banco_recuperado.emitir_extrato(2001) + banco_recuperado.emitir_extrato(2002);
+            diario_reaberto.close();
+            long segmentos;
+            try (java.util.stream.Stream<Path> arquivos = Files.list(pasta_diario)) {
+                segmentos = arquivos.filter(arquivo -> arquivo.getFileName().toString().startsWith("diario-")).count();
+            }
+            Banco banco_reiniciado = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_reiniciado = new DiarioMovimentacoes(pasta_diario);
+            banco_reiniciado.anexar_diario(diario_reiniciado);
+            String extrato_reiniciado = banco_reiniciado.emitir_extrato(2001) + banco_reiniciado.emitir_extrato(2002);
+            if (segmentos == 1 && extrato_reiniciado.equals(extrato_com_instantaneo)) {
+                System.out.println("   ✓ Recuperação a partir do instantâneo + diário compactado");
+            } else {
+                System.out.println("   ERRO: segmentos=" + segmentos + " estado recuperado:\n" + extrato_reiniciado);
+            }
+            banco_reiniciado.criar_conta_poupanca(2003, 0.0, cliente1);
+            for (int i = 0; i < 1000; i++) {
+                banco_reiniciado.depositar(2003, 1.0);
+            }
+            banco_reiniciado.aplicar_rendimento_mensal(YearMonth.of(2024, 1));
+            // com retenção de 256, o rendimento fica de fora das movimentações copiadas para o instantâneo
+            for (int i = 0; i < 300; i++) {
+                banco_reiniciado.depositar(2003, 1.0);
+            }
+            banco_reiniciado.gravar_instantaneo();
+            int movimentacoes_completas = banco_reiniciado.obter_conta(2003).obter_movimentacoes_ordenadas().size();
+            diario_reiniciado.close();
+            // sem retenção definida o extrato inteiro sobrevive ao reinício
+            Banco banco_completo = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_completo = new DiarioMovimentacoes(pasta_diario);
+            banco_completo.anexar_diario(diario_completo);
+            boolean extrato_completo = banco_completo.obter_conta(2003).obter_movimentacoes_ordenadas().size()
+                    == movimentacoes_completas;
+            banco_completo.depositar(2003, 1.0);
+            banco_completo.sacar(2003, 1.0);
+            banco_completo.definir_retencao_extrato(256);
+            banco_completo.gravar_instantaneo();
+            diario_completo.close();
+            long arquivados;
+            try (java.util.stream.Stream<Path> arquivos = Files.list(pasta_diario.resolve(DiarioMovimentacoes.PASTA_ARQUIVO))) {
+                arquivados = arquivos.count();
+            }
+            Banco banco_compacto = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_compacto = new DiarioMovimentacoes(pasta_diario);
+            banco_compacto.anexar_diario(diario_compacto);
+            List<ExtratoEntry> cauda = banco_compacto.obter_conta(2003).obter_movimentacoes_ordenadas();
+            long soma_cauda = 0;
+            for (ExtratoEntry entrada : cauda) {
+                soma_cauda += entrada.obter_tipo() == 'C' ? entrada.obter_valor_centavos() : -entrada.obter_valor_centavos();
+            }
+            ResumoRendimento rendimento_repetido = banco_compacto.aplicar_rendimento_mensal(YearMonth.of(2024, 1));
+            if (banco_compacto.obter_conta(2003).obter_saldo() == 1305.0 && cauda.size() == 257
+                    && cauda.get(256).obter_descricao().equals("Saldo anterior") && soma_cauda == 130500
+                    && rendimento_repetido.obter_contas_ja_creditadas() == 1
+                    && rendimento_repetido.obter_contas_creditadas() == 0
+                    && extrato_completo && arquivados == 1) {
+                System.out.println("   ✓ Extrato completo por padrão; com retenção de 256, diário arquivado e competência preservada");
+            } else {
+                System.out.println("   ERRO: instantâneo limitado inconsistente: " + cauda.size() + " movimentações, saldo "
+                        + banco_compacto.obter_conta(2003).obter_saldo() + ", completo " + extrato_completo
+                        + ", arquivados " + arquivados);
+            }
+            diario_compacto.close();
+
+            System.out.println("\n8. Testando extrato mapeado em memória (fora do heap)...");
+            Banco banco_mapeado = new Banco("Banco do Brasil", "Feito para você", 1);
+            banco_mapeado.definir_armazenamento_extrato(ExtratoMapeado.fabrica(Files.createTempDirectory("banco-extrato")));
+            banco_mapeado.criar_conta(3001, 10.0, cliente1);
+            for (int i = 0; i < 1000; i++) {
+                banco_mapeado.depositar(3001, 1.0);
+            }
+            banco_mapeado.sacar(3001, 5.0);
+            List<ExtratoEntry> movimentacoes_mapeadas = banco_mapeado.obter_contas().get(3001).obter_movimentacoes_ordenadas();
+            if (movimentacoes_mapeadas.size() == 1002
+                    && movimentacoes_mapeadas.get(0).obter_descricao().equals("Saque")
+                    && movimentacoes_mapeadas.get(1001).obter_descricao().equals("Saldo inicial")
+                    && banco_mapeado.obter_contas().get(3001).obter_saldo() == 1005.0) {
+                System.out.println("   ✓ 1002 movimentações em colunas mapeadas, mais recentes primeiro");
+            } else {
+                System.out.println("   ERRO: extrato mapeado inconsistente (" + movimentacoes_mapeadas.size() + " itens)");
+            }
+            // um mapeamento por conta esbarraria no limite de mapeamentos do processo (~65 mil)
+            for (int i = 0; i < 100000; i++) {
+                banco_mapeado.criar_conta(300000 + i, 1.0, cliente1);
+            }
+            banco_mapeado.depositar(399999, 2.0);
+            banco_mapeado.depositar(3001, 3.0);
+            List<ExtratoEntry> ultima_mapeada = banco_mapeado.obter_conta(399999).obter_movimentacoes_ordenadas();
+            if (ultima_mapeada.size() == 2 && ultima_mapeada.get(0).obter_valor_centavos() == 200
+                    && ultima_mapeada.get(1).obter_valor_centavos() == 100
+                    && banco_mapeado.obter_conta(3001).obter_movimentacoes_ordenadas().size() == 1003
+                    && banco_mapeado.obter_conta(3001).obter_movimentacoes_ordenadas().get(1002).obter_descricao()
+                            .equals("Saldo inicial")) {
+                System.out.println("   ✓ 100 mil contas com extrato mapeado num único arquivo segmentado");
+            } else {
+                System.out.println("   ERRO: extrato mapeado inconsistente com muitas contas");
+            }
+
+            System.out.println("\n9. Testando últimas movimentações sem ordenar o extrato...");
+            Banco banco_extrato = new Banco("Banco do Brasil", "Feito para você", 1);
+            banco_extrato.criar_conta(4001, 0.0, cliente1);
+            for (int i = 1; i <= 3000; i++) {
+                banco_extrato.depositar(4001, i);
+            }
+            ContaBancaria conta_extrato = banco_extrato.obter_contas().get(4001);
+            List<ExtratoEntry> ultimas = conta_extrato.obter_ultimas_movimentacoes(3);
+            List<ExtratoEntry> todas = conta_extrato.obter_movimentacoes_ordenadas();
+            boolean em_ordem = true;
+            for (int i = 1; i < todas.size(); i++) {
+                em_ordem &= todas.get(i - 1).obter_epoch_nanos() >= todas.get(i).obter_epoch_nanos();
+            }
+            if (ultimas.size() == 3 && ultimas.get(0).obter_valor_centavos() == 300000
+                    && ultimas.get(2).obter_valor_centavos() == 299800
+                    && todas.size() == 3000 && todas.get(2999).obter_valor_centavos() == 100 && em_ordem) {
+                System.out.println("   ✓ Últimas 3 de 3000 movimentações, mais recentes primeiro");
+            } else {
+                System.out.println("   ERRO: ordem do extrato inconsistente");
+            }
+
+            System.out.println("\n10. Testando consulta paginada do extrato...");
+            int paginas = 0;
+            long soma_paginada = 0;
+            ConsultaExtrato consulta = ConsultaExtrato.ultimos_dias(30).com_tipo('C').com_limite(1000);
+            PaginaExtrato pagina = banco_extrato.consultar_extrato(4001, consulta);
+            while (true) {
+                paginas++;
+                for (ExtratoEntry entrada : pagina.obter_movimentacoes()) {
+                    soma_paginada += entrada.obter_valor_centavos();
+                }
+                if (!pagina.tem_proxima_pagina()) {
+                    break;
+                }
+                pagina = banco_extrato.consultar_extrato(4001, consulta.com_cursor(pagina.obter_proximo_cursor()));
+            }
+            PaginaExtrato debitos = banco_extrato.consultar_extrato(4001, ConsultaExtrato.todas().com_tipo('D'));
+            PaginaExtrato futuro = banco_extrato.consultar_extrato(4001,
+                    ConsultaExtrato.periodo(LocalDateTime.now().plusDays(1), null));
+            if (paginas == 3 && soma_paginada == 3000L * 3001 / 2 * 100
+                    && debitos.obter_movimentacoes().isEmpty() && !debitos.tem_proxima_pagina()
+                    && futuro.obter_movimentacoes().isEmpty()) {
+                System.out.println("   ✓ 3000 créditos em 3 páginas; filtros de tipo e período");
+            } else {
+                System.out.println("   ERRO: paginas=" + paginas + " soma=" + soma_paginada);
+            }
+
+            System.out.println("\n11. Testando exportação do extrato em streaming...");
+            Path arquivo_extrato = Files.createTempFile("extrato", ".txt");
+            try (FileChannel canal = FileChannel.open(arquivo_extrato, StandardOpenOption.WRITE)) {
+                new RenderizadorExtrato().renderizar(conta_extrato, canal);
+            }
+            String exportado = new String(Files.readAllBytes(arquivo_extrato), StandardCharsets.UTF_8);
+            boolean linhas_iguais = true;
+            for (ExtratoEntry entrada : conta_extrato.obter_ultimas_movimentacoes(5)) {
+                linhas_iguais &= exportado.contains("\n" + entrada + "\n");
+            }
+            if (exportado.equals(conta_extrato.emitir_extrato()) && linhas_iguais) {
+                System.out.println("   ✓ Extrato de 3000 movimentações exportado para canal (" + exportado.length() + " caracteres)");
+            } else {
+                System.out.println("   ERRO: extrato exportado difere de emitir_extrato");
+            }
+            Files.delete(arquivo_extrato);
+            ContaBancaria conta_sem_nome = banco_extrato.obter_conta(
+                    banco_extrato.abrir_conta(1.0, new Cliente(null, "11144477735")));
+            ByteArrayOutputStream exportado_sem_nome = new ByteArrayOutputStream();
+            new RenderizadorExtrato().renderizar(conta_sem_nome, Channels.newChannel(exportado_sem_nome));
+            String texto_sem_nome = exportado_sem_nome.toString(StandardCharsets.UTF_8);
+            if (texto_sem_nome.contains("\nTitular: null\n") && texto_sem_nome.equals(conta_sem_nome.emitir_extrato())) {
+                System.out.println("   ✓ Titular sem nome exportado para canal como em emitir_extrato");
+            } else {
+                System.out.println("   ERRO: extrato de titular sem nome: " + texto_sem_nome);
+            }
+
+            System.out.println("\n12. Testando formatação sem Formatter...");
+            boolean formatacao_igual = true;
+            long[] instantes = {0L, -1L, 951_782_400_000_000_000L, 4_107_542_399_999_999_999L, -2_208_988_800_000_000_000L};
+            for (long instante : instantes) {
+                formatacao_igual &= Formatacao.formatarDataHora(instante)
+                        .equals(Formatacao.DATA_HORA.format(DataHora.deEpochNanos(instante)));
+            }
+            long[] valores = {0L, 5L, -5L, 100L, -12345L, 123456789012L};
+            for (long centavos : valores) {
+                formatacao_igual &= Formatacao.formatarValor(centavos).equals(String.format("%.2f", centavos / 100.0));
+            }
+            double[] reais = {1.005, -1.005, 2.675, 0.125, -0.001, -0.0, 1234.56, 1e300, Double.NaN,
+                    Double.NEGATIVE_INFINITY};
+            for (double valor : reais) {
+                formatacao_igual &= Formatacao.formatarReais(valor).equals(String.format("%.2f", valor));
+            }
+            formatacao_igual &= new Movimentacao("Depósito", 'C', Double.NaN, 1e300).getMovimentacao()
+                    .endsWith(" R$" + String.format("%.2f", Double.NaN) + " | Saldo: R$" + String.format("%.2f", 1e300));
+            if (formatacao_igual) {
+                System.out.println("   ✓ Datas e valores iguais aos de DateTimeFormatter/String.format");
+            } else {
+                System.out.println("   ERRO: formatação manual difere da padrão");
+            }
+
+            System.out.println("\n13. Testando rejeições sem exceção...");
+            Banco banco_rejeicoes = new Banco("Banco do Brasil", "Feito para você", 1);
+            banco_rejeicoes.criar_conta(5001, 10.0, cliente1);
+            banco_rejeicoes.criar_conta(5002, 0.0, cliente2);
+            ResultadoOperacao saque_negado = banco_rejeicoes.tentar_sacar(5001, 50.0);
+            ResultadoOperacao transferencia_ok = banco_rejeicoes.tentar_transferir(5001, 5002, 4.0);
+            ResultadoOperacao conta_ausente = banco_rejeicoes.tentar_depositar(9999, 1.0);
+            ResultadoOperacao valor_negado = banco_rejeicoes.tentar_sacar(5001, -1.0);
+            SaldoInsuficienteException primeira = null;
+            SaldoInsuficienteException segunda = null;
+            try {
+                saque_negado.verificar();
+            } catch (SaldoInsuficienteException e) {
+                primeira = e;
+            }
+            try {
+                saque_negado.verificar();
+            } catch (SaldoInsuficienteException e) {
+                segunda = e;
+            }
+            if (saque_negado == ResultadoOperacao.SALDO_INSUFICIENTE && transferencia_ok.sucesso()
+                    && conta_ausente == ResultadoOperacao.CONTA_INEXISTENTE
+                    && valor_negado == ResultadoOperacao.VALOR_INVALIDO
+                    && banco_rejeicoes.obter_contas().get(5001).obter_saldo() == 6.0
+                    && primeira != null && primeira == segunda && primeira.getStackTrace().length == 0) {
+                System.out.println("   ✓ Códigos de resultado e exceção pré-alocada sem stack trace");
+            } else {
+                System.out.println("   ERRO: API de resultado inconsistente");
+            }
+            double saldo_antes_invalidos = banco_rejeicoes.obter_conta(5001).obter_saldo();
+            boolean invalidos_recusados = banco_rejeicoes.tentar_depositar(5001, 1e300) == ResultadoOperacao.VALOR_INVALIDO
+                    && banco_rejeicoes.tentar_depositar(5001, Double.NaN) == ResultadoOperacao.VALOR_INVALIDO
+                    && banco_rejeicoes.tentar_depositar(5001, Double.POSITIVE_INFINITY) == ResultadoOperacao.VALOR_INVALIDO
+                    && banco_rejeicoes.tentar_depositar(5001, 0.001) == ResultadoOperacao.VALOR_INVALIDO
+                    && banco_rejeicoes.tentar_sacar(5001, 0.004) == ResultadoOperacao.VALOR_INVALIDO
+                    && banco_rejeicoes.tentar_transferir(5001, 5002, 1e300) == ResultadoOperacao.VALOR_INVALIDO
+                    && banco_rejeicoes.executar_lote(List.of(OperacaoLote.deposito(5001, 0.001)))[0]
+                            == ResultadoOperacao.VALOR_INVALIDO;
+            if (invalidos_recusados && banco_rejeicoes.obter_conta(5001).obter_saldo() == saldo_antes_invalidos) {
+                System.out.println("   ✓ Valores NaN, infinitos, enormes ou abaixo de meio centavo recusados");
+            } else {
+                System.out.println("   ERRO: valor inválido foi aceito");
+            }
+            banco_rejeicoes.criar_conta(5003, 0.0, cliente1);
+            int depositos_aceitos = 0;
+            ResultadoOperacao deposito_no_teto;
+            while ((deposito_no_teto = banco_rejeicoes.tentar_depositar(5003, 9e13)).sucesso() && depositos_aceitos < 2000) {
+                depositos_aceitos++;
+            }
+            String mensagem_teto = null;
+            try {
+                banco_rejeicoes.depositar(5003, 9e13);
+            } catch (ValorNegativoException e) {
+                mensagem_teto = e.getMessage();
+            }
+            int saldos_iniciais_recusados = 0;
+            for (double saldo_inicial : new double[] {1e300, Double.NaN}) {
+                try {
+                    banco_rejeicoes.criar_conta(5004, saldo_inicial, cliente1);
+                } catch (ValorNegativoException e) {
+                    saldos_iniciais_recusados++;
+                }
+            }
+            if (depositos_aceitos < 2000 && banco_rejeicoes.obter_conta(5003).obter_saldo_centavos() > 0
+                    && deposito_no_teto == ResultadoOperacao.SALDO_MAXIMO_EXCEDIDO
+                    && mensagem_teto != null && mensagem_teto.contains("saldo máximo")
+                    && saldos_iniciais_recusados == 2 && banco_rejeicoes.obter_conta(5004) == null) {
+                System.out.println("   ✓ Depósito que estouraria o saldo recusado depois de " + depositos_aceitos + " aceitos");
+            } else {
+                System.out.println("   ERRO: saldo sem teto ou estourado: " + deposito_no_teto + ", " + mensagem_teto
+                        + ", saldos iniciais recusados " + saldos_iniciais_recusados);
+            }
+
+            System.out.println("\n14. Testando validação de CPF em lote...");
+            String[] cpfs_lote = {"12345678909", "12345678900", "11111111111", "1234567890", "1234567890a", null};
+            boolean[] validos_lote = ValidaCPF.validarEmLote(cpfs_lote);
+            Path arquivo_cpfs = Files.createTempFile("cpfs", ".txt");
+            StringBuilder conteudo_cpfs = new StringBuilder();
+            for (int i = 0; i < 20000; i++) {
+                conteudo_cpfs.append(i % 1000 == 0 ? "12345678900" : "12345678909").append(i % 2 == 0 ? "\n" : "\r\n");
+            }
+            conteudo_cpfs.append("\n52998224725");
+            Files.write(arquivo_cpfs, conteudo_cpfs.toString().getBytes(StandardCharsets.US_ASCII));
+            ResultadoValidacaoLote resultado_arquivo = ValidaCPF.validarArquivo(arquivo_cpfs);
+            Files.delete(arquivo_cpfs);
+            long[] linhas_invalidas = resultado_arquivo.obterLinhasInvalidas();
+            if (Arrays.equals(validos_lote, new boolean[] {true, false, false, false, false, false})
+                    && ValidaCPF.validarCPF("52998224725".getBytes(StandardCharsets.US_ASCII), 0)
+                    && resultado_arquivo.obterTotal() == 20002 && resultado_arquivo.obterInvalidos() == 21
+                    && linhas_invalidas[0] == 1 && linhas_invalidas[1] == 1001 && linhas_invalidas[20] == 20001) {
+                System.out.println("   ✓ 20002 linhas validadas em paralelo, 21 rejeitadas");
+            } else {
+                System.out.println("   ERRO: validação em lote inconsistente: " + resultado_arquivo.obterTotal()
+                        + "/" + resultado_arquivo.obterInvalidos() + " " + Arrays.toString(validos_lote));
+            }
+
+            System.out.println("\n15. Testando cadastro de clientes por CPF...");
+            Banco banco_cadastro = new Banco("Banco do Brasil", "Feito para você", 1);
+            banco_cadastro.criar_conta(6001, 0.0, new Cliente("Maria Santos", "52998224725"));
+            banco_cadastro.criar_conta(6002, 0.0, 500.0, new Cliente("Maria Santos", "52998224725"));
+            banco_cadastro.criar_conta(6003, 0.0, new Cliente("João Silva", "12345678909"));
+            Cliente maria = banco_cadastro.obter_cliente("52998224725");
+            if (Arrays.equals(banco_cadastro.obter_contas_do_cliente("52998224725"), new int[] {6001, 6002})
+                    && banco_cadastro.obter_total_clientes() == 2
+                    && banco_cadastro.obter_contas().get(6002).obter_titular() == maria
+                    && !banco_cadastro.cliente_cadastrado("11144477735")
+                    && banco_cadastro.obter_contas_do_cliente("00000000000").length == 0
+                    && new Cliente("Ana", "01234567890").obter_cpf().equals("01234567890")
+                    && maria.obter_cpf_formatado().equals("529.982.247-25")) {
+                System.out.println("   ✓ Contas por CPF em O(1) e um único Cliente por CPF");
+            } else {
+                System.out.println("   ERRO: cadastro de clientes inconsistente");
+            }
+
+            System.out.println("\n16. Testando visões das contas sem cópia...");
+            Map<Integer, ContaBancaria> visao_contas = banco_cadastro.obter_contas();
+            List<ContaBancaria> instantaneo_contas = banco_cadastro.obter_instantaneo_contas();
+            for (int i = 0; i < 2000; i++) {
+                banco_cadastro.criar_conta(7000 + i, 1.0, new Cliente("João Silva", "12345678909"));
+            }
+            List<ContaBancaria> instantaneo_depois = banco_cadastro.obter_instantaneo_contas();
+            boolean visao_imutavel;
+            try {
+                visao_contas.remove(6001);
+                visao_imutavel = false;
+            } catch (UnsupportedOperationException e) {
+                visao_imutavel = true;
+            }
+            if (instantaneo_contas.size() == 3 && instantaneo_contas.get(2).obter_numero() == 6003
+                    && instantaneo_depois.size() == 2003 && instantaneo_depois.get(2002).obter_numero() == 8999
+                    && visao_contas.size() == 2003 && visao_contas.get(7500) != null
+                    && !visao_contas.containsKey(9000) && visao_imutavel) {
+                System.out.println("   ✓ Instantâneo estável e visão ao vivo somente leitura");
+            } else {
+                System.out.println("   ERRO: visões das contas inconsistentes");
+            }
+
+            System.out.println("\n17. Testando rendimento mensal em paralelo...");
+            Path pasta_rendimento = Files.createTempDirectory("banco-rendimento");
+            Banco banco_rendimento = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_rendimento = new DiarioMovimentacoes(pasta_rendimento);
+            banco_rendimento.anexar_diario(diario_rendimento);
+            for (int i = 0; i < 10000; i++) {
+                banco_rendimento.criar_conta_poupanca(10000 + i, 1.0, cliente1);
+            }
+            banco_rendimento.criar_conta_poupanca(9001, 3.0, cliente1);
+            banco_rendimento.criar_conta(9002, 1000.0, cliente1);
+            ResumoRendimento primeira_rodada = banco_rendimento.aplicar_rendimento_mensal(YearMonth.of(2024, 1));
+            ResumoRendimento repetida = banco_rendimento.aplicar_rendimento_mensal(YearMonth.of(2024, 1));
+            diario_rendimento.close();
+            Banco banco_rendimento_recuperado = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_rendimento_reaberto = new DiarioMovimentacoes(pasta_rendimento);
+            banco_rendimento_recuperado.anexar_diario(diario_rendimento_reaberto);
+            ResumoRendimento apos_recuperacao = banco_rendimento_recuperado.aplicar_rendimento_mensal(YearMonth.of(2024, 1));
+            ResumoRendimento mes_seguinte = banco_rendimento_recuperado.aplicar_rendimento_mensal(YearMonth.of(2024, 2));
+            diario_rendimento_reaberto.close();
+            // 100 centavos * 0,5% = 0,5 centavo, arredondado para 1; 300 centavos = 1,5, arredondado para 2
+            if (primeira_rodada.obter_contas_creditadas() == 10001 && primeira_rodada.obter_total_centavos() == 10002
+                    && repetida.obter_contas_ja_creditadas() == 10001 && repetida.obter_total_centavos() == 0
+                    && apos_recuperacao.obter_contas_ja_creditadas() == 10001
+                    && mes_seguinte.obter_contas_creditadas() == 10001
+                    && banco_rendimento_recuperado.obter_contas().get(9001).obter_saldo_centavos() == 304
+                    && banco_rendimento_recuperado.obter_contas().get(9002).obter_saldo() == 1000.0) {
+                System.out.println("   ✓ Rendimento aplicado uma única vez por competência, inclusive após recuperação");
+            } else {
+                System.out.println("   ERRO: rendimento inconsistente: " + primeira_rodada.obter_contas_creditadas()
+                        + "/" + primeira_rodada.obter_total_centavos() + " " + repetida.obter_contas_ja_creditadas()
+                        + " " + apos_recuperacao.obter_contas_ja_creditadas());
+            }
+            Path pasta_sem_saldo = Files.createTempDirectory("banco-rendimento-zero");
+            Banco banco_sem_saldo = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_sem_saldo = new DiarioMovimentacoes(pasta_sem_saldo);
+            banco_sem_saldo.anexar_diario(diario_sem_saldo);
+            banco_sem_saldo.criar_conta_poupanca(9003, 0.0, cliente1);
+            banco_sem_saldo.aplicar_rendimento_mensal(YearMonth.of(2024, 1));
+            banco_sem_saldo.depositar(9003, 100.0);
+            diario_sem_saldo.close();
+            Banco banco_sem_saldo_recuperado = new Banco("Banco do Brasil", "Feito para você", 1);
+            DiarioMovimentacoes diario_sem_saldo_reaberto = new DiarioMovimentacoes(pasta_sem_saldo);
+            banco_sem_saldo_recuperado.anexar_diario(diario_sem_saldo_reaberto);
+            ResumoRendimento sem_saldo_repetido = banco_sem_saldo_recuperado.aplicar_rendimento_mensal(YearMonth.of(2024, 1));
+            diario_sem_saldo_reaberto.close();
+            if (sem_saldo_repetido.obter_contas_ja_creditadas() == 1 && sem_saldo_repetido.obter_total_centavos() == 0
+                    && banco_sem_saldo_recuperado.obter_conta(9003).obter_saldo() == 100.0) {
+                System.out.println("   ✓ Competência com rendimento zero também sobrevive à recuperação");
+            } else {
+                System.out.println("   ERRO: competência sem rendimento reaplicada após recuperação");
+            }
+
+            System.out.println("\n18. Testando operações assíncronas em threads virtuais...");
+            Banco banco_assincrono = new Banco("Banco do Brasil", "Feito para você", 1);
+            banco_assincrono.criar_conta(11001, 0.0, cliente1);
+            banco_assincrono.criar_conta(11002, 10.0, cliente1);
+            List<CompletableFuture<ResultadoOperacao>> pendentes = new ArrayList<>();
+            try (BancoAssincrono assincrono = new BancoAssincrono(banco_assincrono)) {
+                // cada saque só é possível se o depósito submetido antes dele já tiver sido aplicado
+                for (int i = 0; i < 10000; i++) {
+                    pendentes.add(assincrono.depositar(11001, 1.0));
+                    pendentes.add(assincrono.sacar(11001, 1.0));
+                    pendentes.add(assincrono.transferir(11002, 11001, 10.0));
+                    pendentes.add(assincrono.transferir(11001, 11002, 10.0));
+                }
+            }
+            boolean todas_aceitas = true;
+            for (CompletableFuture<ResultadoOperacao> pendente : pendentes) {
+                todas_aceitas &= pendente.join() == ResultadoOperacao.SUCESSO;
+            }
+            if (todas_aceitas && banco_assincrono.obter_contas().get(11001).obter_saldo() == 0.0
+                    && banco_assincrono.obter_contas().get(11002).obter_saldo() == 10.0) {
+                System.out.println("   ✓ 40000 operações assíncronas aplicadas na ordem de submissão por conta");
+            } else {
+                System.out.println("   ERRO: operações assíncronas fora de ordem");
+            }
+
+            System.out.println("\n19. Testando motor particionado (uma thread dona por partição)...");
+            Banco banco_motor = new Banco("Banco do Brasil", "Feito para você", 1);
+            for (int numero = 12000; numero < 12016; numero++) {
+                banco_motor.criar_conta(numero, 100.0, cliente1);
+            }
+            List<CompletableFuture<ResultadoOperacao>> pendentes_motor = new ArrayList<>();
+            try (MotorParticionado motor = new MotorParticionado(banco_motor, 4, 64)) {
+                Thread[] produtores = new Thread[4];
+                for (int p = 0; p < produtores.length; p++) {
+                    int deslocamento = p;
+                    produtores[p] = new Thread(() -> {
+                        List<CompletableFuture<ResultadoOperacao>> locais = new ArrayList<>();
+                        for (int i = 0; i < 5000; i++) {
+                            locais.add(motor.depositar(12000, 1.0));
+                            int origem = 12000 + (i + deslocamento) % 16;
+                            locais.add(motor.transferir(origem, 12000 + (i * 7 + deslocamento) % 16, 3.0));
+                        }
+                        synchronized (pendentes_motor) {
+                            pendentes_motor.addAll(locais);
+                        }
+                    });
+                    produtores[p].start();
+                }
+                for (Thread produtor : produtores) {
+                    produtor.join();
+                }
+                pendentes_motor.add(motor.sacar(99999, 1.0));
+            }
+            boolean motor_consistente = true;
+            for (CompletableFuture<ResultadoOperacao> pendente : pendentes_motor) {
+                ResultadoOperacao resultado = pendente.getNow(null);
+                motor_consistente &= resultado != null;
+            }
+            long soma_motor = 0;
+            for (ContaBancaria conta : banco_motor.obter_instantaneo_contas()) {
+                soma_motor += conta.obter_saldo_centavos();
+            }
+            if (motor_consistente && soma_motor == (16 * 100 + 20000) * 100L
+                    && pendentes_motor.get(pendentes_motor.size() - 1).join() == ResultadoOperacao.CONTA_INEXISTENTE) {
+                System.out.println("   ✓ 40000 operações concluídas e saldo total conservado entre partições");
+            } else {
+                System.out.println("   ERRO: motor particionado inconsistente: soma=" + soma_motor);
+            }
+
+            System.out.println("\n20. Testando conta quente com depósitos acumulados...");
+            Banco banco_quente = new Banco("Banco do Brasil", "Feito para você", 1);
+            banco_quente.criar_conta(13001, 0.0, cliente1);
+            banco_quente.marcar_conta_quente(13001);
+            ContaBancaria conta_quente = banco_quente.obter_contas().get(13001);
+            Thread[] depositantes = new Thread[4];
+            for (int t = 0; t < depositantes.length; t++) {
+                depositantes[t] = new Thread(() -> {
+                    for (int i = 0; i < 50000; i++) {
+                        conta_quente.depositar(0.01);
+                    }
+                });
+                depositantes[t].start();
+            }
+            for (Thread depositante : depositantes) {
+                depositante.join();
+            }
+            long saldo_quente = conta_quente.obter_saldo_centavos();
+            int movimentacoes_antes_do_saque = conta_quente.obter_movimentacoes_ordenadas().size();
+            boolean saque_coberto = conta_quente.sacar(1500.0);
+            boolean saque_excedente = conta_quente.sacar(600.01);
+            String extrato_quente = conta_quente.emitir_extrato();
+            if (saldo_quente == 200000 && movimentacoes_antes_do_saque == 1 && saque_coberto && !saque_excedente
+                    && conta_quente.obter_saldo() == 500.0
+                    && extrato_quente.contains("Depósitos consolidados")) {
+                System.out.println("   ✓ 200000 depósitos concorrentes consolidados e saques exatos");
+            } else {
+                System.out.println("   ERRO: conta quente inconsistente: " + saldo_quente + " "
+                        + movimentacoes_antes_do_saque + " " + saque_coberto + " " + saque_excedente);
+            }
+
+            System.out.println("\n21. Testando abertura de contas com número sequencial...");
+            Banco banco_sequencial = new Banco("Banco do Brasil", "Feito para você", 1);
+            banco_sequencial.criar_conta(2, 0.0, cliente1);
+            int primeira_aberta = banco_sequencial.abrir_conta(10.0, cliente1);
+            int segunda_aberta = banco_sequencial.abrir_conta(0.0, 100.0, cliente1);
+            if (primeira_aberta == 1 && segunda_aberta == 3
+                    && banco_sequencial.obter_conta(3).obter_saldo() == 0.0
+                    && banco_sequencial.obter_conta(1).obter_saldo() == 10.0
+                    && banco_sequencial.obter_conta(4) == null) {
+                System.out.println("   ✓ Números livres atribuídos em sequência, pulando os já usados");
+            } else {
+                System.out.println("   ERRO: numeração inesperada: " + primeira_aberta + ", " + segunda_aberta);
+            }
+            // a criação da 7001 fica parada na fábrica até a 7002 ser criada: com uma
+            // trava global em volta da fábrica, a 7002 esperaria a 7001 e o prazo estouraria
+            Banco banco_criacao = new Banco("Banco do Brasil", "Feito para você", 1);
+            java.util.function.IntFunction<br.univali.cc.prog3.banco.persistencia.ArmazenamentoExtrato> mapeado =
+                    ExtratoMapeado.fabrica(Files.createTempDirectory("banco-criacao"));
+            CountDownLatch criando_7001 = new CountDownLatch(1);
+            CountDownLatch criada_7002 = new CountDownLatch(1);
+            boolean[] esperou_7002 = {false};
+            banco_criacao.definir_armazenamento_extrato(numero_criado -> {
+                if (numero_criado == 7001) {
+                    criando_7001.countDown();
+                    try {
+                        esperou_7002[0] = criada_7002.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return mapeado.apply(numero_criado);
+            });
+            Thread criacao_lenta = new Thread(() -> {
+                try {
+                    banco_criacao.criar_conta(7001, 1.0, cliente1);
+                } catch (BancoException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            criacao_lenta.start();
+            criando_7001.await();
+            banco_criacao.criar_conta(7002, 1.0, cliente2);
+            criada_7002.countDown();
+            criacao_lenta.join();
+            if (esperou_7002[0] && banco_criacao.obter_conta(7001) != null && banco_criacao.obter_conta(7002) != null) {
+                System.out.println("   ✓ Criação de uma conta não espera a fábrica de outra");
+            } else {
+                System.out.println("   ERRO: criações de contas diferentes serializadas");
+            }
+
+            System.out.println("\n22. Testando API HTTP com JSON...");
+            try (ServidorHttp servidor_http = new ServidorHttp(new BancoServico(),
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+                servidor_http.iniciar();
+                HttpClient cliente_http = HttpClient.newHttpClient();
+                String base = "http://127.0.0.1:" + servidor_http.obterPorta();
+                HttpResponse<String> criada = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/contas"))
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"saldoInicial\": 100, \"nomeTitular\": \"Ana \\\"Zé\\\"\", \"cpfTitular\": \"52998224725\"}"))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                HttpRequest deposito = HttpRequest.newBuilder(URI.create(base + "/depositos"))
+                        .header("Idempotency-Key", "pedido-1")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"numero\":1,\"valor\":25.5}")).build();
+                int status_deposito = cliente_http.send(deposito, HttpResponse.BodyHandlers.ofString()).statusCode();
+                int status_repetido = cliente_http.send(deposito, HttpResponse.BodyHandlers.ofString()).statusCode();
+                int status_conflito = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/depositos"))
+                        .header("Idempotency-Key", "pedido-1")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"numero\":1,\"valor\":99}")).build(),
+                        HttpResponse.BodyHandlers.ofString()).statusCode();
+                HttpResponse<String> metodo_errado = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/depositos"))
+                        .GET().build(), HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> metodo_errado_saldo = cliente_http.send(
+                        HttpRequest.newBuilder(URI.create(base + "/contas/1/saldo")).DELETE().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> saldo_http = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/contas/1/saldo"))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> saque_recusado = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/saques"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"numero\":1,\"valor\":1000}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> deposito_sem_conta = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/depositos"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"numero\":9,\"valor\":10}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> deposito_invalido = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/depositos"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"numero\":1,\"valor\":0.001}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> json_invalido = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/saques"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"numero\":")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> inexistente = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/contas/9/extrato"))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> extrato_http = cliente_http.send(HttpRequest.newBuilder(URI.create(base + "/contas/1/extrato"))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                if (criada.statusCode() == 201 && criada.body().equals(
+                                "{\"sucesso\":true,\"mensagem\":\"Operação realizada com sucesso\",\"dados\":1}")
+                        && status_deposito == 200 && status_repetido == 200 && status_conflito == 409
+                        && metodo_errado.statusCode() == 405
+                        && metodo_errado.headers().firstValue("Allow").orElse("").equals("POST")
+                        && metodo_errado_saldo.statusCode() == 405
+                        && metodo_errado_saldo.headers().firstValue("Allow").orElse("").equals("GET")
+                        && saldo_http.body().endsWith("\"dados\":125.5}")
+                        && saque_recusado.statusCode() == 422 && saque_recusado.body().contains("Saldo insuficiente")
+                        && deposito_sem_conta.statusCode() == 404 && deposito_invalido.statusCode() == 400
+                        && json_invalido.statusCode() == 400
+                        && inexistente.statusCode() == 404
+                        && extrato_http.body().contains("Titular: Ana \\\"Zé\\\"\\n")) {
+                    System.out.println("   ✓ Contas e operações pela API, com depósito repetido aplicado uma vez");
+                } else {
+                    System.out.println("   ERRO: respostas da API inesperadas: " + criada.body() + " " + saldo_http.body()
+                            + " " + saque_recusado.statusCode() + " " + deposito_sem_conta.statusCode() + " "
+                            + deposito_invalido.statusCode() + " " + json_invalido.statusCode() + " "
+                            + inexistente.statusCode() + " " + status_conflito + " " + metodo_errado.statusCode() + " "
+                            + metodo_errado_saldo.statusCode());
+                }
+            }
+            // capacidade 2: a entrada em execução fica no cache mesmo com a fila bem acima disso
+            CacheIdempotencia<Integer> cache = new CacheIdempotencia<>(2, Duration.ofHours(1));
+            CountDownLatch lenta_iniciada = new CountDownLatch(1);
+            CountDownLatch liberar_lenta = new CountDownLatch(1);
+            int[] execucoes_lenta = {0};
+            Thread lenta = new Thread(() -> cache.executar("lenta", "L", () -> {
+                execucoes_lenta[0]++;
+                lenta_iniciada.countDown();
+                try {
+                    liberar_lenta.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }));
+            lenta.start();
+            lenta_iniciada.await();
+            for (int i = 0; i < 5; i++) {
+                cache.executar("rapida-" + i, "R", () -> 2);
+                try {
+                    cache.executar("falha-" + i, "F", () -> {
+                        throw new IllegalStateException("falha");
+                    });
+                } catch (IllegalStateException e) {
+                    // esperado: falhas não ficam guardadas
+                }
+            }
+            liberar_lenta.countDown();
+            lenta.join();
+            int repetida_lenta = cache.executar("lenta", "L", () -> {
+                execucoes_lenta[0]++;
+                return 3;
+            });
+            cache.executar("depois", "R", () -> 4);
+            boolean erro_propagado = false;
+            try {
+                cache.executar("com-erro", "E", () -> {
+                    throw new AssertionError("falha grave");
+                });
+            } catch (AssertionError e) {
+                erro_propagado = true;
+            }
+            int apos_erro = cache.executar("com-erro", "E", () -> 5);
+            if (repetida_lenta == 1 && execucoes_lenta[0] == 1 && cache.tamanho() <= 2
+                    && erro_propagado && apos_erro == 5) {
+                System.out.println("   ✓ Idempotência não descarta operação em andamento, volta à capacidade e não guarda Error");
+            } else {
+                System.out.println("   ERRO: cache de idempotência: resultado " + repetida_lenta + ", execuções "
+                        + execucoes_lenta[0] + ", tamanho " + cache.tamanho() + ", após Error " + apos_erro);
+            }
+
             System.out.println("\n=== TODOS OS TESTES FORAM EXECUTADOS COM SUCESSO! ===");
 
         } catch (Exception e) {
@@ -0,0 +1,64 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer circular limitado com vários produtores e um único consumidor.
+ *
+ * Produtores reservam uma sequência com CAS em proxima_reserva e publicam o
+ * item na posição com semântica release; o consumidor lê a posição com
+ * acquire e, ao consumir, libera a posição avançando consumidas. Com o anel
+ * cheio, o produtor espera (contrapressão) em vez de crescer a fila.
+ */
+final class AnelOperacoes<T> {
+    private static final VarHandle POSICOES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Object[] posicoes;
+    private final int mascara;
+    private final AtomicLong proxima_reserva = new AtomicLong();
+    // escrita só pelo consumidor
+    private volatile long consumidas;
+
+    AnelOperacoes(int capacidade_minima) {
+        int capacidade = 1;
+        while (capacidade < capacidade_minima) {
+            capacidade <<= 1;
+        }
+        this.posicoes = new Object[capacidade];
+        this.mascara = capacidade - 1;
+    }
+
+    void publicar(T item) {
+        long sequencia;
+        while (true) {
+            sequencia = proxima_reserva.get();
+            if (sequencia - consumidas >= posicoes.length) {
+                LockSupport.parkNanos(1_000);
+            } else if (proxima_reserva.compareAndSet(sequencia, sequencia + 1)) {
+                break;
+            }
+        }
+        POSICOES.setRelease(posicoes, (int) sequencia & mascara, item);
+    }
+
+    /** Só o consumidor chama. Retorna null se o próximo item ainda não foi publicado. */
+    @SuppressWarnings("unchecked")
+    T retirar() {
+        long sequencia = consumidas;
+        int indice = (int) sequencia & mascara;
+        Object item = POSICOES.getAcquire(posicoes, indice);
+        if (item == null) {
+            return null;
+        }
+        POSICOES.setRelease(posicoes, indice, null);
+        consumidas = sequencia + 1;
+        return (T) item;
+    }
+
+    boolean vazio() {
+        return proxima_reserva.get() == consumidas;
+    }
+}
@@ -0,0 +1,55 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aplica o rendimento de uma competência a uma faixa do instantâneo de contas,
+ * dividindo-a ao meio até FAIXA_MINIMA contas por tarefa.
+ */
+// RecursiveTask é Serializable, mas a tarefa só vive dentro do ForkJoinPool
+@SuppressWarnings("serial")
+class ApuracaoRendimento extends RecursiveTask<ResumoRendimento> {
+    private static final int FAIXA_MINIMA = 4096;
+
+    private final List<ContaBancaria> contas;
+    private final int inicio;
+    private final int fim;
+    private final YearMonth competencia;
+
+    ApuracaoRendimento(List<ContaBancaria> contas, int inicio, int fim, YearMonth competencia) {
+        this.contas = contas;
+        this.inicio = inicio;
+        this.fim = fim;
+        this.competencia = competencia;
+    }
+
+    @Override
+    protected ResumoRendimento compute() {
+        if (fim - inicio > FAIXA_MINIMA) {
+            int meio = (inicio + fim) >>> 1;
+            ApuracaoRendimento esquerda = new ApuracaoRendimento(contas, inicio, meio, competencia);
+            esquerda.fork();
+            ResumoRendimento direita = new ApuracaoRendimento(contas, meio, fim, competencia).compute();
+            return esquerda.join().somar(direita);
+        }
+        int creditadas = 0;
+        int ja_creditadas = 0;
+        long total_centavos = 0;
+        for (int i = inicio; i < fim; i++) {
+            ContaBancaria conta = contas.get(i);
+            if (!(conta instanceof ContaPoupanca)) {
+                continue;
+            }
+            long rendimento = ((ContaPoupanca) conta).aplicarRendimentoMensal(competencia);
+            if (rendimento < 0) {
+                ja_creditadas++;
+            } else if (rendimento > 0) {
+                creditadas++;
+                total_centavos += rendimento;
+            }
+        }
+        return new ResumoRendimento(creditadas, ja_creditadas, total_centavos);
+    }
+}
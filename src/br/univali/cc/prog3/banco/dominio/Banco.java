@@ -4,21 +4,45 @@ import br.univali.cc.prog3.banco.excecao.ContaDuplicadaException;
 import br.univali.cc.prog3.banco.excecao.ContaInexistenteException;
 import br.univali.cc.prog3.banco.excecao.SaldoInsuficienteException;
 import br.univali.cc.prog3.banco.excecao.ValorNegativoException;
-import java.util.HashMap;
+import br.univali.cc.prog3.banco.persistencia.ArmazenamentoExtrato;
+import br.univali.cc.prog3.banco.persistencia.DiarioMovimentacoes;
+import br.univali.cc.prog3.banco.utilitario.Dinheiro;
+import br.univali.cc.prog3.banco.utilitario.Formatacao;
+import br.univali.cc.prog3.banco.utilitario.ValidaCPF;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
 
 public class Banco {
     private String nome;
     private String slogan;
     private int numero;
-    private Map<Integer, ContaBancaria> contas;
+    private final MapaContas contas;
+    private final Map<Integer, ContaBancaria> visao_contas;
+    private final CadastroClientes cadastro = new CadastroClientes();
+    private final CopyOnWriteArrayList<ContaBancaria> contas_quentes = new CopyOnWriteArrayList<>();
     private int numero_conta_sequencial;
+    private volatile PersistenciaBanco persistencia;
+    private volatile IntFunction<ArmazenamentoExtrato> fabrica_extrato;
+    private volatile int movimentacoes_retidas = Integer.MAX_VALUE;
 
     public Banco(String nome, String slogan, int numero) {
         this.nome = nome;
         this.slogan = slogan;
         this.numero = numero;
-        this.contas = new HashMap<>();
+        this.contas = new MapaContas();
+        this.visao_contas = contas.como_mapa();
         this.numero_conta_sequencial = 1;
     }
 
@@ -27,11 +51,9 @@ public class Banco {
         if (saldo_inicial < 0) {
             throw new ValorNegativoException("Saldo inicial não pode ser negativo");
         }
-        if (contas.containsKey(numero_conta)) {
-            throw new ContaDuplicadaException("Já existe uma conta com o número " + numero_conta);
-        }
+        validar_intervalo(saldo_inicial);
         ContaCorrente nova_conta = new ContaCorrente(numero_conta, saldo_inicial, cliente);
-        contas.put(numero_conta, nova_conta);
+        registrar_nova_conta(nova_conta);
     }
 
     public void criar_conta(int numero_conta, double saldo_inicial, double limite, Cliente cliente)
@@ -39,52 +61,417 @@ public class Banco {
         if (saldo_inicial < 0 || limite < 0) {
             throw new ValorNegativoException("Saldo inicial e limite não podem ser negativos");
         }
-        if (contas.containsKey(numero_conta)) {
-            throw new ContaDuplicadaException("Já existe uma conta com o número " + numero_conta);
-        }
+        validar_intervalo(saldo_inicial);
+        validar_intervalo(limite);
         ContaCorrente nova_conta = new ContaCorrente(numero_conta, saldo_inicial, cliente, limite);
-        contas.put(numero_conta, nova_conta);
+        registrar_nova_conta(nova_conta);
+    }
+
+    // o construtor da conta converte com Dinheiro.paraCentavos, que recusaria com IllegalArgumentException
+    private static void validar_intervalo(double valor) throws ValorNegativoException {
+        if (!Dinheiro.dentroDoIntervalo(valor)) {
+            throw new ValorNegativoException("Valor fora do intervalo aceito: " + valor);
+        }
+    }
+
+    /** Como criar_conta, mas com o próximo número livre da sequência do banco, que é devolvido. */
+    public int abrir_conta(double saldo_inicial, Cliente cliente) throws ValorNegativoException {
+        return abrir(numero -> criar_conta(numero, saldo_inicial, cliente));
+    }
+
+    public int abrir_conta(double saldo_inicial, double limite, Cliente cliente) throws ValorNegativoException {
+        return abrir(numero -> criar_conta(numero, saldo_inicial, limite, cliente));
+    }
+
+    private interface CriacaoConta {
+        void criar(int numero) throws ContaDuplicadaException, ValorNegativoException;
+    }
+
+    private int abrir(CriacaoConta criacao) throws ValorNegativoException {
+        while (true) {
+            int numero = reservar_numero_conta();
+            try {
+                criacao.criar(numero);
+                return numero;
+            } catch (ContaDuplicadaException e) {
+                // número ocupado por uma conta criada com número explícito: segue a sequência
+            }
+        }
+    }
+
+    private synchronized int reservar_numero_conta() {
+        while (contas.obter(numero_conta_sequencial) != null) {
+            numero_conta_sequencial++;
+        }
+        return numero_conta_sequencial++;
+    }
+
+    public void criar_conta_poupanca(int numero_conta, double saldo_inicial, Cliente cliente)
+            throws ContaDuplicadaException, ValorNegativoException {
+        if (saldo_inicial < 0) {
+            throw new ValorNegativoException("Saldo inicial não pode ser negativo");
+        }
+        validar_intervalo(saldo_inicial);
+        registrar_nova_conta(new ContaPoupanca(numero_conta, saldo_inicial, cliente));
+    }
+
+    private void registrar_nova_conta(ContaBancaria nova_conta) throws ContaDuplicadaException {
+        PersistenciaBanco atual = persistencia;
+        boolean registrada = atual == null
+                ? contas.obter_ou_criar(nova_conta.obter_numero(), n -> preparar_conta(nova_conta)) == nova_conta
+                : atual.registrar_nova_conta(nova_conta);
+        if (!registrada) {
+            throw new ContaDuplicadaException("Já existe uma conta com o número " + nova_conta.obter_numero());
+        }
+        aguardar_diario();
+    }
+
+    /**
+     * Define onde o extrato das contas criadas daqui em diante será guardado
+     * (ex.: ExtratoMapeado.fabrica(diretorio) para mantê-lo fora do heap).
+     * Sem fábrica, o extrato fica em memória.
+     */
+    public void definir_armazenamento_extrato(IntFunction<ArmazenamentoExtrato> fabrica) {
+        this.fabrica_extrato = fabrica;
+    }
+
+    // chamado exatamente uma vez por conta, logo antes de ela ser publicada no mapa
+    private ContaBancaria preparar_conta(ContaBancaria conta) {
+        conta.titular = cadastro.registrar_conta(conta.titular, conta.obter_numero());
+        IntFunction<ArmazenamentoExtrato> fabrica = fabrica_extrato;
+        if (fabrica != null) {
+            conta.trocar_armazenamento_extrato(fabrica.apply(conta.obter_numero()));
+        }
+        return conta;
+    }
+
+    /**
+     * Reconstrói as contas a partir do último instantâneo e do diário posterior
+     * a ele, e passa a registrar no diário toda movimentação futura. Deve ser
+     * chamado com o banco ainda vazio.
+     */
+    public void anexar_diario(DiarioMovimentacoes diario) throws IOException {
+        if (!contas.vazio()) {
+            throw new IllegalStateException("O diário deve ser anexado antes da criação de contas");
+        }
+        PersistenciaBanco nova = new PersistenciaBanco(contas, diario, this::preparar_conta);
+        int sequencial_recuperado = nova.recuperar();
+        if (sequencial_recuperado > 0) {
+            numero_conta_sequencial = sequencial_recuperado;
+        }
+        persistencia = nova;
+    }
+
+    /**
+     * Política de retenção do extrato nos instantâneos: quantas movimentações
+     * de cada conta sobrevivem a um reinício. Por padrão (Integer.MAX_VALUE)
+     * o extrato inteiro é mantido. Com um limite, as movimentações mais antigas
+     * aparecem no extrato recuperado somadas num "Saldo anterior", e os
+     * segmentos do diário que as continham vão para DiarioMovimentacoes.PASTA_ARQUIVO.
+     */
+    public void definir_retencao_extrato(int movimentacoes) {
+        if (movimentacoes <= 0) {
+            throw new IllegalArgumentException("A retenção deve ser de pelo menos uma movimentação");
+        }
+        this.movimentacoes_retidas = movimentacoes;
+    }
+
+    /**
+     * Grava um instantâneo de todas as contas e retira do diário os segmentos
+     * que ele torna desnecessários, limitando o tempo de recuperação (ver
+     * definir_retencao_extrato).
+     */
+    public synchronized void gravar_instantaneo() throws IOException {
+        PersistenciaBanco atual = persistencia;
+        if (atual == null) {
+            throw new IllegalStateException("Nenhum diário anexado");
+        }
+        atual.gravar_instantaneo(numero_conta_sequencial, movimentacoes_retidas);
+    }
+
+    public ScheduledFuture<?> agendar_instantaneos(long intervalo, TimeUnit unidade) {
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "instantaneo-banco-" + numero);
+            thread.setDaemon(true);
+            return thread;
+        });
+        return agendador.scheduleWithFixedDelay(() -> {
+            try {
+                gravar_instantaneo();
+            } catch (IOException e) {
+                System.err.println("Falha ao gravar instantâneo: " + e.getMessage());
+            }
+        }, intervalo, intervalo, unidade);
+    }
+
+    /**
+     * Põe a conta em modo quente (ver ContaBancaria.ativar_modo_quente). Os
+     * depósitos pendentes são consolidados por agendar_consolidacao_depositos,
+     * antes de qualquer saque que precise deles e sempre que o extrato é lido.
+     * Com diário anexado, o Banco ainda consolida antes de confirmar cada
+     * depósito, para que a confirmação continue significando "está no disco";
+     * quem deposita ao mesmo tempo acaba consolidado pela mesma thread.
+     */
+    public void marcar_conta_quente(int numero) throws ContaInexistenteException {
+        ContaBancaria conta = localizar_conta(numero);
+        conta.ativar_modo_quente();
+        contas_quentes.addIfAbsent(conta);
+    }
+
+    public ScheduledFuture<?> agendar_consolidacao_depositos(long intervalo, TimeUnit unidade) {
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "consolidacao-banco-" + numero);
+            thread.setDaemon(true);
+            return thread;
+        });
+        return agendador.scheduleWithFixedDelay(() -> {
+            for (ContaBancaria conta : contas_quentes) {
+                conta.consolidar_depositos();
+            }
+        }, intervalo, intervalo, unidade);
+    }
+
+    // no-op para contas fora do modo quente
+    void consolidar_se_persistente(ContaBancaria conta) {
+        if (persistencia != null) {
+            conta.consolidar_depositos();
+        }
+    }
+
+    void aguardar_diario() {
+        PersistenciaBanco atual = persistencia;
+        if (atual != null) {
+            atual.aguardar();
+        }
+    }
+
+    /** A conta com o número informado, ou null; uma única busca, sem exceção. */
+    public ContaBancaria obter_conta(int numero) {
+        return contas.obter(numero);
     }
 
     private ContaBancaria localizar_conta(int numero) throws ContaInexistenteException {
-        ContaBancaria conta = contas.get(numero);
+        ContaBancaria conta = contas.obter(numero);
         if (conta == null) {
-            throw new ContaInexistenteException("Conta " + numero + " não encontrada");
+            throw conta_inexistente(numero);
         }
         return conta;
     }
 
+    private static ContaInexistenteException conta_inexistente(int numero) {
+        return new ContaInexistenteException("Conta " + numero + " não encontrada");
+    }
+
     public void depositar(int numero, double valor)
             throws ContaInexistenteException, ValorNegativoException {
-        if (valor <= 0) {
+        ResultadoOperacao resultado = tentar_depositar(numero, valor);
+        if (resultado == ResultadoOperacao.VALOR_INVALIDO) {
             throw new ValorNegativoException("Valor para depósito deve ser positivo");
         }
-        ContaBancaria conta = localizar_conta(numero);
-        conta.depositar(valor);
+        if (resultado == ResultadoOperacao.SALDO_MAXIMO_EXCEDIDO) {
+            throw new ValorNegativoException("Depósito de R$ " + Formatacao.formatarReais(valor)
+                    + " excede o saldo máximo da conta " + numero);
+        }
+        if (resultado == ResultadoOperacao.CONTA_INEXISTENTE) {
+            throw conta_inexistente(numero);
+        }
     }
 
     public void sacar(int numero, double valor)
             throws ContaInexistenteException, ValorNegativoException, SaldoInsuficienteException {
-        if (valor <= 0) {
+        ResultadoOperacao resultado = tentar_sacar(numero, valor);
+        if (resultado == ResultadoOperacao.VALOR_INVALIDO) {
             throw new ValorNegativoException("Valor para saque deve ser positivo");
         }
-        ContaBancaria conta = localizar_conta(numero);
-        if (!conta.sacar(valor)) {
-            throw new SaldoInsuficienteException("Saldo insuficiente para saque de R$ " + String.format("%.2f", valor));
+        if (resultado == ResultadoOperacao.CONTA_INEXISTENTE) {
+            throw conta_inexistente(numero);
+        }
+        if (resultado == ResultadoOperacao.SALDO_INSUFICIENTE) {
+            throw new SaldoInsuficienteException("Saldo insuficiente para saque de R$ " + Formatacao.formatarReais(valor));
         }
     }
 
     public void transferir(int numero_origem, int numero_destino, double valor)
             throws ContaInexistenteException, ValorNegativoException, SaldoInsuficienteException {
-        if (valor <= 0) {
+        if (Dinheiro.centavosDaOperacao(valor) <= 0) {
             throw new ValorNegativoException("Valor para transferência deve ser positivo");
         }
+        // busca própria, e não tentar_transferir, para a exceção dizer qual das duas contas falta
         ContaBancaria origem = localizar_conta(numero_origem);
         ContaBancaria destino = localizar_conta(numero_destino);
-        if (!origem.sacar(valor)) {
-            throw new SaldoInsuficienteException("Saldo insuficiente para transferência de R$ " + String.format("%.2f", valor));
+        if (!origem.transferir(destino, valor)) {
+            throw new SaldoInsuficienteException("Saldo insuficiente para transferência de R$ " + Formatacao.formatarReais(valor));
+        }
+        aguardar_diario();
+    }
+
+    /**
+     * Mesmas regras de depositar, mas a rejeição vem como ResultadoOperacao em
+     * vez de exceção: sem stack trace nem mensagem formatada. Quem ainda quiser
+     * uma exceção barata chama resultado.verificar().
+     */
+    public ResultadoOperacao tentar_depositar(int numero, double valor) {
+        if (Dinheiro.centavosDaOperacao(valor) <= 0) {
+            return ResultadoOperacao.VALOR_INVALIDO;
+        }
+        ContaBancaria conta = contas.obter(numero);
+        if (conta == null) {
+            return ResultadoOperacao.CONTA_INEXISTENTE;
+        }
+        if (!conta.depositar(valor)) {
+            return ResultadoOperacao.SALDO_MAXIMO_EXCEDIDO;
+        }
+        consolidar_se_persistente(conta);
+        aguardar_diario();
+        return ResultadoOperacao.SUCESSO;
+    }
+
+    /** Como sacar, sem exceções (ver tentar_depositar). */
+    public ResultadoOperacao tentar_sacar(int numero, double valor) {
+        if (Dinheiro.centavosDaOperacao(valor) <= 0) {
+            return ResultadoOperacao.VALOR_INVALIDO;
+        }
+        ContaBancaria conta = contas.obter(numero);
+        if (conta == null) {
+            return ResultadoOperacao.CONTA_INEXISTENTE;
+        }
+        if (!conta.sacar(valor)) {
+            return ResultadoOperacao.SALDO_INSUFICIENTE;
+        }
+        aguardar_diario();
+        return ResultadoOperacao.SUCESSO;
+    }
+
+    /** Como transferir, sem exceções (ver tentar_depositar). */
+    public ResultadoOperacao tentar_transferir(int numero_origem, int numero_destino, double valor) {
+        if (Dinheiro.centavosDaOperacao(valor) <= 0) {
+            return ResultadoOperacao.VALOR_INVALIDO;
+        }
+        ResultadoOperacao resultado = aplicar_transferencia(numero_origem, numero_destino, valor);
+        if (resultado.sucesso()) {
+            aguardar_diario();
+        }
+        return resultado;
+    }
+
+    // sem esperar o diário; o valor já foi validado
+    private ResultadoOperacao aplicar_transferencia(int numero_origem, int numero_destino, double valor) {
+        ContaBancaria origem = contas.obter(numero_origem);
+        ContaBancaria destino = contas.obter(numero_destino);
+        if (origem == null || destino == null) {
+            return ResultadoOperacao.CONTA_INEXISTENTE;
+        }
+        return origem.transferir(destino, valor) ? ResultadoOperacao.SUCESSO : ResultadoOperacao.SALDO_INSUFICIENTE;
+    }
+
+    /**
+     * Aplica um lote inteiro sem lançar exceções: o resultado de cada item fica
+     * na mesma posição do vetor retornado, e os itens de uma mesma conta são
+     * aplicados na ordem do lote. O lote é percorrido em trechos: depósitos e
+     * saques seguidos, até a próxima transferência, são agrupados por conta
+     * (uma única busca por conta), já que contas diferentes não dependem umas
+     * das outras; cada transferência é aplicada no seu lugar, entre os trechos.
+     */
+    public ResultadoOperacao[] executar_lote(List<OperacaoLote> operacoes) {
+        ResultadoOperacao[] resultados = new ResultadoOperacao[operacoes.size()];
+        long[] trecho = new long[operacoes.size()];
+        int i = 0;
+        while (i < operacoes.size()) {
+            int total_trecho = 0;
+            for (; i < operacoes.size(); i++) {
+                OperacaoLote operacao = operacoes.get(i);
+                if (Dinheiro.centavosDaOperacao(operacao.obter_valor()) <= 0) {
+                    resultados[i] = ResultadoOperacao.VALOR_INVALIDO;
+                } else if (operacao.obter_tipo() == OperacaoLote.Tipo.TRANSFERENCIA) {
+                    break;
+                } else {
+                    trecho[total_trecho++] = chave_ordenacao(operacao.obter_numero(), i);
+                }
+            }
+            // a chave termina no índice, então a ordenação mantém a ordem do lote dentro de cada conta
+            Arrays.sort(trecho, 0, total_trecho);
+            int inicio = 0;
+            while (inicio < total_trecho) {
+                int numero = (int) (trecho[inicio] >> 32);
+                int fim = inicio;
+                while (fim < total_trecho && (int) (trecho[fim] >> 32) == numero) {
+                    fim++;
+                }
+                aplicar_grupo_simples(operacoes, trecho, inicio, fim, numero, resultados);
+                inicio = fim;
+            }
+            if (i < operacoes.size()) {
+                OperacaoLote transferencia = operacoes.get(i);
+                resultados[i] = aplicar_transferencia(transferencia.obter_numero(),
+                        transferencia.obter_numero_destino(), transferencia.obter_valor());
+                i++;
+            }
         }
-        destino.depositar(valor);
+        aguardar_diario();
+        return resultados;
+    }
+
+    private static long chave_ordenacao(int grupo, int indice) {
+        return ((long) grupo << 32) | (indice & 0xFFFFFFFFL);
+    }
+
+    private void aplicar_grupo_simples(List<OperacaoLote> operacoes, long[] ordem, int inicio, int fim,
+            int numero, ResultadoOperacao[] resultados) {
+        ContaBancaria conta = contas.obter(numero);
+        for (int k = inicio; k < fim; k++) {
+            int indice = (int) ordem[k];
+            OperacaoLote operacao = operacoes.get(indice);
+            if (conta == null) {
+                resultados[indice] = ResultadoOperacao.CONTA_INEXISTENTE;
+            } else if (operacao.obter_tipo() == OperacaoLote.Tipo.DEPOSITO) {
+                resultados[indice] = conta.depositar(operacao.obter_valor())
+                        ? ResultadoOperacao.SUCESSO : ResultadoOperacao.SALDO_MAXIMO_EXCEDIDO;
+            } else {
+                resultados[indice] = conta.sacar(operacao.obter_valor())
+                        ? ResultadoOperacao.SUCESSO : ResultadoOperacao.SALDO_INSUFICIENTE;
+            }
+        }
+        if (conta != null) {
+            consolidar_se_persistente(conta);
+        }
+    }
+
+    /**
+     * Credita o rendimento da competência em todas as poupanças, repartidas
+     * entre as threads do pool. Cada conta guarda a última competência
+     * aplicada, então uma execução interrompida (ou repetida) pode ser refeita
+     * com a mesma competência: só as contas que faltaram são creditadas. Com
+     * diário anexado, espera um único fsync no fim em vez de um por conta.
+     */
+    public ResumoRendimento aplicar_rendimento_mensal(YearMonth competencia, ForkJoinPool pool) {
+        List<ContaBancaria> instantaneo = contas.instantaneo();
+        ResumoRendimento resumo = pool.invoke(new ApuracaoRendimento(instantaneo, 0, instantaneo.size(), competencia));
+        aguardar_diario();
+        return resumo;
+    }
+
+    public ResumoRendimento aplicar_rendimento_mensal(YearMonth competencia) {
+        return aplicar_rendimento_mensal(competencia, ForkJoinPool.commonPool());
+    }
+
+    /** Cliente com o CPF informado (a mesma instância em todas as suas contas), ou null. */
+    public Cliente obter_cliente(String cpf) {
+        long compacto = ValidaCPF.compactarCPF(cpf);
+        return compacto < 0 ? null : cadastro.obter_cliente(compacto);
+    }
+
+    public boolean cliente_cadastrado(String cpf) {
+        return obter_cliente(cpf) != null;
+    }
+
+    /** Números das contas do cliente, na ordem de criação; vazio se o CPF não tiver contas. */
+    public int[] obter_contas_do_cliente(String cpf) {
+        long compacto = ValidaCPF.compactarCPF(cpf);
+        return compacto < 0 ? new int[0] : cadastro.obter_contas(compacto);
+    }
+
+    public int obter_total_clientes() {
+        return cadastro.obter_total_clientes();
     }
 
     public String emitir_extrato(int numero) throws ContaInexistenteException {
@@ -92,6 +479,22 @@ public class Banco {
         return conta.emitir_extrato();
     }
 
+    /** Escreve o extrato direto na saída, sem montar a String inteira (ver RenderizadorExtrato). */
+    public void exportar_extrato(int numero, Writer saida) throws ContaInexistenteException, IOException {
+        ContaBancaria conta = localizar_conta(numero);
+        new RenderizadorExtrato().renderizar(conta, saida);
+    }
+
+    public void exportar_extrato(int numero, WritableByteChannel canal) throws ContaInexistenteException, IOException {
+        ContaBancaria conta = localizar_conta(numero);
+        new RenderizadorExtrato().renderizar(conta, canal);
+    }
+
+    public PaginaExtrato consultar_extrato(int numero, ConsultaExtrato consulta) throws ContaInexistenteException {
+        ContaBancaria conta = localizar_conta(numero);
+        return conta.consultar_extrato(consulta);
+    }
+
     public String obter_nome() {
         return nome;
     }
@@ -104,7 +507,20 @@ public class Banco {
         return numero;
     }
 
+    /**
+     * Visão somente leitura e ao vivo das contas por número; nada é copiado.
+     * Para percorrer todas as contas, prefira obter_instantaneo_contas.
+     */
     public Map<Integer, ContaBancaria> obter_contas() {
-        return new HashMap<>(contas);
+        return visao_contas;
+    }
+
+    /**
+     * Lista imutável das contas existentes neste momento, em ordem de criação.
+     * Custa O(1), não bloqueia quem cria contas e não muda depois de obtida;
+     * os saldos são lidos ao vivo de cada conta.
+     */
+    public List<ContaBancaria> obter_instantaneo_contas() {
+        return contas.instantaneo();
     }
 }
@@ -0,0 +1,91 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fachada assíncrona do Banco: cada operação devolve na hora um
+ * CompletableFuture e é executada numa thread virtual, então rajadas de
+ * dezenas de milhares de pedidos não exigem uma thread de plataforma cada.
+ *
+ * Operações que tocam a mesma conta são executadas na ordem em que foram
+ * submetidas: cada conta cai numa fila (listra) e cada operação só começa
+ * depois que a anterior da sua fila terminou, com sucesso ou não. Uma
+ * transferência espera pelas filas das duas contas e passa a ser a última
+ * de ambas. Contas em filas diferentes andam em paralelo, e as esperas pelo
+ * diário de várias contas continuam sendo agrupadas no mesmo fsync.
+ */
+public class BancoAssincrono implements AutoCloseable {
+    private static final int FILAS = 4096;
+
+    private final Banco banco;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // a trava i guarda caudas[i]; travar_par dá a ordem fixa que evita ciclos entre transferências
+    private final TravasDeConta travas = new TravasDeConta(FILAS);
+    private final CompletableFuture<?>[] caudas = new CompletableFuture<?>[FILAS];
+
+    public BancoAssincrono(Banco banco) {
+        this.banco = banco;
+        CompletableFuture<Void> concluida = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < FILAS; i++) {
+            caudas[i] = concluida;
+        }
+    }
+
+    public CompletableFuture<ResultadoOperacao> depositar(int numero, double valor) {
+        return enfileirar(numero, () -> banco.tentar_depositar(numero, valor));
+    }
+
+    public CompletableFuture<ResultadoOperacao> sacar(int numero, double valor) {
+        return enfileirar(numero, () -> banco.tentar_sacar(numero, valor));
+    }
+
+    public CompletableFuture<ResultadoOperacao> transferir(int numero_origem, int numero_destino, double valor) {
+        int fila_origem = travas.indice(numero_origem);
+        int fila_destino = travas.indice(numero_destino);
+        if (fila_origem == fila_destino) {
+            return enfileirar(numero_origem, () -> banco.tentar_transferir(numero_origem, numero_destino, valor));
+        }
+        travas.travar_par(numero_origem, numero_destino);
+        try {
+            CompletableFuture<ResultadoOperacao> operacao = executar_depois(
+                    CompletableFuture.allOf(caudas[fila_origem], caudas[fila_destino]),
+                    () -> banco.tentar_transferir(numero_origem, numero_destino, valor));
+            caudas[fila_origem] = operacao;
+            caudas[fila_destino] = operacao;
+            return operacao;
+        } finally {
+            travas.destravar_par(numero_origem, numero_destino);
+        }
+    }
+
+    private CompletableFuture<ResultadoOperacao> enfileirar(int numero, Supplier<ResultadoOperacao> acao) {
+        int fila = travas.indice(numero);
+        ReentrantLock trava = travas.trava(numero);
+        trava.lock();
+        try {
+            CompletableFuture<ResultadoOperacao> operacao = executar_depois(caudas[fila], acao);
+            caudas[fila] = operacao;
+            return operacao;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // a falha de uma operação fica no futuro dela e não impede as seguintes
+    private CompletableFuture<ResultadoOperacao> executar_depois(CompletableFuture<?> anterior,
+            Supplier<ResultadoOperacao> acao) {
+        return anterior.handleAsync((resultado, falha) -> acao.get(), executor);
+    }
+
+    /** Espera as operações já submetidas terminarem e encerra as threads. */
+    @Override
+    public void close() {
+        // operações ainda encadeadas só chegam ao executor quando a anterior termina
+        CompletableFuture.allOf(caudas.clone()).handle((resultado, falha) -> null).join();
+        executor.close();
+    }
+}
@@ -0,0 +1,130 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cadastro dos clientes de um Banco: uma única instância de Cliente por CPF e,
+ * para cada cliente, os números das suas contas.
+ *
+ * O CPF compacto (long) é a chave de uma tabela de endereçamento aberto com
+ * sondagem linear, guardada em vetores primitivos paralelos: nenhum Long,
+ * Integer ou nó de lista por cliente, e busca em O(1).
+ */
+class CadastroClientes {
+    // CPF compacto nunca é negativo
+    private static final long VAZIO = -1;
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private long[] cpfs;
+    private Cliente[] clientes;
+    private int[][] contas;
+    private int[] total_contas;
+    private int total_clientes;
+
+    CadastroClientes() {
+        alocar(CAPACIDADE_INICIAL);
+    }
+
+    private void alocar(int capacidade) {
+        cpfs = new long[capacidade];
+        Arrays.fill(cpfs, VAZIO);
+        clientes = new Cliente[capacidade];
+        contas = new int[capacidade][];
+        total_contas = new int[capacidade];
+    }
+
+    /**
+     * Associa a conta ao cliente e devolve a instância canônica dele: a já
+     * cadastrada para o mesmo CPF (mantendo o nome do primeiro cadastro) ou o
+     * próprio titular, se for o primeiro.
+     */
+    Cliente registrar_conta(Cliente titular, int numero_conta) {
+        trava.writeLock().lock();
+        try {
+            int posicao = localizar(titular.obter_cpf_compacto());
+            if (cpfs[posicao] == VAZIO) {
+                if ((total_clientes + 1) * 2 > cpfs.length) {
+                    redimensionar(cpfs.length * 2);
+                    posicao = localizar(titular.obter_cpf_compacto());
+                }
+                cpfs[posicao] = titular.obter_cpf_compacto();
+                clientes[posicao] = titular;
+                contas[posicao] = new int[1];
+                total_clientes++;
+            }
+            int[] numeros = contas[posicao];
+            if (total_contas[posicao] == numeros.length) {
+                numeros = Arrays.copyOf(numeros, numeros.length * 2);
+                contas[posicao] = numeros;
+            }
+            numeros[total_contas[posicao]++] = numero_conta;
+            return clientes[posicao];
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /** Cliente com o CPF compacto, ou null se não houver. */
+    Cliente obter_cliente(long cpf) {
+        trava.readLock().lock();
+        try {
+            return clientes[localizar(cpf)];
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /** Números das contas do cliente, na ordem de criação (vazio se não houver). */
+    int[] obter_contas(long cpf) {
+        trava.readLock().lock();
+        try {
+            int posicao = localizar(cpf);
+            return cpfs[posicao] == VAZIO ? new int[0] : Arrays.copyOf(contas[posicao], total_contas[posicao]);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    int obter_total_clientes() {
+        trava.readLock().lock();
+        try {
+            return total_clientes;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // posição do CPF, ou da vaga onde ele entraria; a tabela nunca passa de metade cheia
+    private int localizar(long cpf) {
+        int mascara = cpfs.length - 1;
+        int posicao = espalhar(cpf) & mascara;
+        while (cpfs[posicao] != VAZIO && cpfs[posicao] != cpf) {
+            posicao = (posicao + 1) & mascara;
+        }
+        return posicao;
+    }
+
+    private static int espalhar(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void redimensionar(int nova_capacidade) {
+        long[] cpfs_antigos = cpfs;
+        Cliente[] clientes_antigos = clientes;
+        int[][] contas_antigas = contas;
+        int[] total_antigo = total_contas;
+        alocar(nova_capacidade);
+        for (int i = 0; i < cpfs_antigos.length; i++) {
+            if (cpfs_antigos[i] != VAZIO) {
+                int posicao = localizar(cpfs_antigos[i]);
+                cpfs[posicao] = cpfs_antigos[i];
+                clientes[posicao] = clientes_antigos[i];
+                contas[posicao] = contas_antigas[i];
+                total_contas[posicao] = total_antigo[i];
+            }
+        }
+    }
+}
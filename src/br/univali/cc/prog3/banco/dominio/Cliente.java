@@ -3,15 +3,23 @@ package br.univali.cc.prog3.banco.dominio;
 import br.univali.cc.prog3.banco.utilitario.ValidaCPF;
 
 public class Cliente {
+    /** Maior nome aceito, em caracteres; o nome é opcional (null). */
+    public static final int TAMANHO_MAXIMO_NOME = 200;
+
     private String nome;
-    private String cpf;
+    // os 11 dígitos como número (ver ValidaCPF.compactarCPF)
+    private long cpf;
 
     public Cliente(String nome, String cpf) {
-        if (!ValidaCPF.validarCPF(cpf)) {
+        long compacto = ValidaCPF.compactarCPF(cpf);
+        if (compacto < 0) {
             throw new IllegalArgumentException("CPF inválido");
         }
+        if (nome != null && nome.length() > TAMANHO_MAXIMO_NOME) {
+            throw new IllegalArgumentException("Nome com mais de " + TAMANHO_MAXIMO_NOME + " caracteres");
+        }
         this.nome = nome;
-        this.cpf = cpf;
+        this.cpf = compacto;
     }
 
     public String obter_nome() {
@@ -19,6 +27,10 @@ public class Cliente {
     }
 
     public String obter_cpf() {
+        return ValidaCPF.expandirCPF(cpf);
+    }
+
+    public long obter_cpf_compacto() {
         return cpf;
     }
 
@@ -30,4 +42,4 @@ public class Cliente {
     public String toString() {
         return nome + " (CPF: " + obter_cpf_formatado() + ")";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package br.univali.cc.prog3.banco.dominio;
+
+/**
+ * Descrição de uma movimentação como código + argumento numérico opcional
+ * (ex.: a conta de origem/destino de uma transferência). O texto só é montado
+ * quando o extrato é exibido.
+ */
+public enum CodigoMovimentacao {
+    SALDO_INICIAL("Saldo inicial"),
+    DEPOSITO("Depósito"),
+    SAQUE("Saque"),
+    TRANSFERENCIA_ENVIADA("Transferência para conta "),
+    TRANSFERENCIA_RECEBIDA("Transferência da conta "),
+    RENDIMENTO_MENSAL("Rendimento mensal"),
+    // vários depósitos de uma conta em modo quente, lançados como uma só movimentação
+    DEPOSITOS_CONSOLIDADOS("Depósitos consolidados"),
+    // soma das movimentações que ficaram de fora do instantâneo (ver PersistenciaBanco)
+    SALDO_ANTERIOR("Saldo anterior");
+
+    private static final CodigoMovimentacao[] POR_CODIGO = values();
+
+    private final String texto;
+
+    CodigoMovimentacao(String texto) {
+        this.texto = texto;
+    }
+
+    public boolean usa_argumento() {
+        return this == TRANSFERENCIA_ENVIADA || this == TRANSFERENCIA_RECEBIDA;
+    }
+
+    public String renderizar(int argumento) {
+        return usa_argumento() ? texto + argumento : texto;
+    }
+
+    /** Texto fixo; quando usa_argumento(), o argumento vem logo depois dele. */
+    String obter_texto() {
+        return texto;
+    }
+
+    public byte obter_codigo() {
+        return (byte) ordinal();
+    }
+
+    public static CodigoMovimentacao de_codigo(byte codigo) {
+        return POR_CODIGO[codigo];
+    }
+}
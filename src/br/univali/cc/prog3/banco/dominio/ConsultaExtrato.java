@@ -0,0 +1,96 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import br.univali.cc.prog3.banco.utilitario.DataHora;
+import java.time.LocalDateTime;
+
+/**
+ * Filtro de uma página do extrato (ver Banco.consultar_extrato). Imutável: cada
+ * com_* devolve uma nova consulta. O período é [inicio, fim), o resultado vem
+ * da movimentação mais recente para a mais antiga e o cursor é o valor de
+ * PaginaExtrato.obter_proximo_cursor() da página anterior.
+ */
+public final class ConsultaExtrato {
+    public static final int LIMITE_PADRAO = 50;
+    public static final char TODOS_OS_TIPOS = '*';
+
+    private final long inicio_epoch_nanos;
+    private final long fim_epoch_nanos;
+    private final char tipo;
+    private final int cursor;
+    private final int limite;
+
+    private ConsultaExtrato(long inicio_epoch_nanos, long fim_epoch_nanos, char tipo, int cursor, int limite) {
+        this.inicio_epoch_nanos = inicio_epoch_nanos;
+        this.fim_epoch_nanos = fim_epoch_nanos;
+        this.tipo = tipo;
+        this.cursor = cursor;
+        this.limite = limite;
+    }
+
+    public static ConsultaExtrato todas() {
+        return new ConsultaExtrato(Long.MIN_VALUE, Long.MAX_VALUE, TODOS_OS_TIPOS, Integer.MAX_VALUE, LIMITE_PADRAO);
+    }
+
+    public static ConsultaExtrato periodo(LocalDateTime inicio, LocalDateTime fim) {
+        return todas().com_periodo(inicio, fim);
+    }
+
+    public static ConsultaExtrato ultimos_dias(int dias) {
+        if (dias <= 0) {
+            throw new IllegalArgumentException("Quantidade de dias inválida: " + dias);
+        }
+        return todas().com_periodo(LocalDateTime.now().minusDays(dias), null);
+    }
+
+    /** inicio ou fim nulos deixam o período aberto daquele lado. */
+    public ConsultaExtrato com_periodo(LocalDateTime inicio, LocalDateTime fim) {
+        long novo_inicio = inicio == null ? Long.MIN_VALUE : DataHora.paraEpochNanos(inicio);
+        long novo_fim = fim == null ? Long.MAX_VALUE : DataHora.paraEpochNanos(fim);
+        if (novo_inicio > novo_fim) {
+            throw new IllegalArgumentException("Início do período posterior ao fim");
+        }
+        return new ConsultaExtrato(novo_inicio, novo_fim, tipo, cursor, limite);
+    }
+
+    /** 'C' para créditos, 'D' para débitos ou TODOS_OS_TIPOS. */
+    public ConsultaExtrato com_tipo(char novo_tipo) {
+        if (novo_tipo != 'C' && novo_tipo != 'D' && novo_tipo != TODOS_OS_TIPOS) {
+            throw new IllegalArgumentException("Tipo de movimentação inválido: " + novo_tipo);
+        }
+        return new ConsultaExtrato(inicio_epoch_nanos, fim_epoch_nanos, novo_tipo, cursor, limite);
+    }
+
+    public ConsultaExtrato com_cursor(int novo_cursor) {
+        if (novo_cursor < 0) {
+            throw new IllegalArgumentException("Cursor inválido: " + novo_cursor);
+        }
+        return new ConsultaExtrato(inicio_epoch_nanos, fim_epoch_nanos, tipo, novo_cursor, limite);
+    }
+
+    public ConsultaExtrato com_limite(int novo_limite) {
+        if (novo_limite <= 0) {
+            throw new IllegalArgumentException("Limite inválido: " + novo_limite);
+        }
+        return new ConsultaExtrato(inicio_epoch_nanos, fim_epoch_nanos, tipo, cursor, novo_limite);
+    }
+
+    long obter_inicio_epoch_nanos() {
+        return inicio_epoch_nanos;
+    }
+
+    long obter_fim_epoch_nanos() {
+        return fim_epoch_nanos;
+    }
+
+    boolean aceita(char tipo_movimentacao) {
+        return tipo == TODOS_OS_TIPOS || tipo == tipo_movimentacao;
+    }
+
+    int obter_cursor() {
+        return cursor;
+    }
+
+    int obter_limite() {
+        return limite;
+    }
+}
@@ -1,23 +1,56 @@
 package br.univali.cc.prog3.banco.dominio;
 
+import br.univali.cc.prog3.banco.persistencia.ArmazenamentoExtrato;
+import br.univali.cc.prog3.banco.utilitario.DataHora;
+import br.univali.cc.prog3.banco.utilitario.Dinheiro;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class ContaBancaria {
+    /** Teto do saldo; créditos que passariam dele são recusados. */
+    static final long SALDO_MAXIMO_CENTAVOS = Long.MAX_VALUE / 2;
+
+    private static final VarHandle SALDO_CENTAVOS;
+
+    static {
+        try {
+            SALDO_CENTAVOS = MethodHandles.lookup()
+                    .findVarHandle(ContaBancaria.class, "saldo_centavos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     protected int numero;
-    protected double saldo;
+    protected volatile long saldo_centavos;
     protected Cliente titular;
-    protected List<ExtratoEntry> extrato;
+    protected ArmazenamentoExtrato extrato;
+    private volatile OuvinteMovimentacao ouvinte;
+    // guardado pela trava do extrato; impede que um ajuste do relógio para trás
+    // quebre a ordem cronológica do extrato
+    private long ultimo_epoch_nanos = Long.MIN_VALUE;
+    // guardado pela trava do extrato: o saldo até a última movimentação já lançada
+    // no extrato (saldo_centavos anda antes, no CAS); é o saldo que o instantâneo grava
+    private long saldo_lancado_centavos;
+    // modo conta quente: depósitos acumulados em células por thread, ainda fora do saldo e do extrato
+    private volatile LongAdder depositos_pendentes;
 
     public ContaBancaria(int numero, double saldo_inicial, Cliente titular) {
         this.numero = numero;
-        this.saldo = saldo_inicial;
+        this.saldo_centavos = Dinheiro.paraCentavos(saldo_inicial);
         this.titular = titular;
-        this.extrato = new ArrayList<>();
-        if (saldo_inicial > 0) {
-            adicionar_extrato("Saldo inicial", saldo_inicial, 'C');
+        this.extrato = new ExtratoEmMemoria();
+        if (saldo_centavos > 0) {
+            adicionar_extrato(CodigoMovimentacao.SALDO_INICIAL, 0, saldo_centavos, 'C');
         }
     }
 
@@ -26,7 +59,12 @@ public abstract class ContaBancaria {
     }
 
     public double obter_saldo() {
-        return saldo;
+        return Dinheiro.paraReais(obter_saldo_centavos());
+    }
+
+    public long obter_saldo_centavos() {
+        LongAdder pendentes = depositos_pendentes;
+        return pendentes == null ? saldo_centavos : saldo_centavos + pendentes.sum();
     }
 
     public Cliente obter_titular() {
@@ -34,62 +72,396 @@ public abstract class ContaBancaria {
     }
 
     public boolean depositar(double valor) {
-        if (valor > 0) {
-            saldo += valor;
-            adicionar_extrato("Depósito", valor, 'C');
-            return true;
-        }
-        return false;
+        return creditar(valor, CodigoMovimentacao.DEPOSITO, 0);
     }
 
     public boolean sacar(double valor) {
-        if (valor > 0 && pode_sacar(valor)) {
-            saldo -= valor;
-            adicionar_extrato("Saque", valor, 'D');
+        return debitar(valor, CodigoMovimentacao.SAQUE, 0);
+    }
+
+    protected boolean creditar(double valor, CodigoMovimentacao codigo, int argumento) {
+        long valor_centavos = Dinheiro.centavosDaOperacao(valor);
+        if (valor_centavos <= 0 || !comporta_credito(valor_centavos)) {
+            return false;
+        }
+        verificar_ouvinte();
+        LongAdder pendentes = depositos_pendentes;
+        if (pendentes != null && codigo == CodigoMovimentacao.DEPOSITO) {
+            pendentes.add(valor_centavos);
             return true;
         }
-        return false;
+        lancar_credito(valor_centavos, codigo, argumento);
+        return true;
+    }
+
+    /**
+     * Se o saldo comporta mais este crédito sem passar de SALDO_MAXIMO_CENTAVOS.
+     * Créditos simultâneos podem passar juntos pela verificação e ultrapassar o
+     * teto em alguns MAXIMO_CENTAVOS; a folga até Long.MAX_VALUE cobre isso.
+     */
+    private boolean comporta_credito(long valor_centavos) {
+        return obter_saldo_centavos() <= SALDO_MAXIMO_CENTAVOS - valor_centavos;
+    }
+
+    // o crédito em si, que não falha: quem chama já validou o valor
+    private void lancar_credito(long valor_centavos, CodigoMovimentacao codigo, int argumento) {
+        SALDO_CENTAVOS.getAndAdd(this, valor_centavos);
+        adicionar_extrato(codigo, argumento, valor_centavos, 'C');
+    }
+
+    protected boolean debitar(double valor, CodigoMovimentacao codigo, int argumento) {
+        long valor_centavos = Dinheiro.centavosDaOperacao(valor);
+        if (valor_centavos <= 0) {
+            return false;
+        }
+        verificar_ouvinte();
+        if (!debitar_saldo(valor_centavos)) {
+            return false;
+        }
+        adicionar_extrato(codigo, argumento, valor_centavos, 'D');
+        return true;
+    }
+
+    // só o CAS do saldo, sem extrato; false se a regra recusar
+    private boolean debitar_saldo(long valor_centavos) {
+        while (true) {
+            long atual = saldo_centavos;
+            if (pode_sacar(atual, valor_centavos)) {
+                if (SALDO_CENTAVOS.compareAndSet(this, atual, atual - valor_centavos)) {
+                    return true;
+                }
+            } else if (consolidar_depositos() == 0) {
+                // depósitos pendentes só contam depois de consolidados: a regra sempre decide sobre o saldo real
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Soma um valor ao saldo se a regra aceitar o saldo observado.
+     * A regra é reavaliada a cada tentativa de CAS, então nunca decide sobre um saldo obsoleto.
+     * Retorna o valor efetivamente somado, ou 0 se a regra recusou.
+     */
+    protected long ajustar_saldo(AjusteSaldo ajuste) {
+        verificar_ouvinte();
+        consolidar_depositos();
+        long atual;
+        long delta;
+        do {
+            atual = saldo_centavos;
+            delta = ajuste.calcular(atual);
+            if (delta == 0) {
+                return 0;
+            }
+        } while (!SALDO_CENTAVOS.compareAndSet(this, atual, atual + delta));
+        return delta;
+    }
+
+    protected interface AjusteSaldo {
+        long calcular(long saldo_atual_centavos);
+    }
+
+    protected abstract boolean pode_sacar(long saldo_atual_centavos, long valor_centavos);
+
+    protected void adicionar_extrato(CodigoMovimentacao codigo, int argumento, long valor_centavos, char tipo) {
+        synchronized (extrato) {
+            // instante lido dentro da trava: a ordem de inclusão é a ordem cronológica
+            long epoch_nanos = Math.max(DataHora.agoraEpochNanos(), ultimo_epoch_nanos);
+            anexar_extrato(epoch_nanos, codigo, argumento, valor_centavos, tipo);
+            OuvinteMovimentacao atual = ouvinte;
+            if (atual != null) {
+                atual.movimentacao_registrada(this, epoch_nanos, tipo, valor_centavos, codigo, argumento);
+            }
+        }
+    }
+
+    // com o diário fora do ar a movimentação é recusada com exceção antes de mudar o saldo
+    private void verificar_ouvinte() {
+        OuvinteMovimentacao atual = ouvinte;
+        if (atual != null) {
+            atual.verificar_disponivel();
+        }
+    }
+
+    // quem chama está sincronizado no extrato; epoch_nanos não pode ser menor que ultimo_epoch_nanos
+    private void anexar_extrato(long epoch_nanos, CodigoMovimentacao codigo, int argumento, long valor_centavos,
+            char tipo) {
+        ultimo_epoch_nanos = epoch_nanos;
+        saldo_lancado_centavos += tipo == 'C' ? valor_centavos : -valor_centavos;
+        extrato.adicionar(epoch_nanos, tipo, valor_centavos, codigo.obter_codigo(), argumento);
+    }
+
+    /**
+     * Modo conta quente, para contas que recebem depósitos de muitas threads ao
+     * mesmo tempo (lojista, folha de pagamento): cada depósito só soma numa
+     * célula de um LongAdder, sem disputar o CAS do saldo nem a trava do
+     * extrato. consolidar_depositos leva o acumulado para o saldo como uma
+     * única movimentação. Saques continuam exatos: um saque que o saldo
+     * consolidado não cobre consolida os pendentes e tenta de novo.
+     */
+    public void ativar_modo_quente() {
+        synchronized (extrato) {
+            if (depositos_pendentes == null) {
+                depositos_pendentes = new LongAdder();
+            }
+        }
+    }
+
+    public boolean modo_quente() {
+        return depositos_pendentes != null;
+    }
+
+    /**
+     * Leva os depósitos pendentes do modo quente para o saldo e para o extrato
+     * (e para o diário, se houver). Retorna o valor consolidado em centavos.
+     */
+    public long consolidar_depositos() {
+        LongAdder pendentes = depositos_pendentes;
+        if (pendentes == null) {
+            return 0;
+        }
+        synchronized (extrato) {
+            // sum() não é uma fotografia atômica, mas todo valor que ela leu já foi
+            // somado; subtrair exatamente esse valor preserva o que chegar no meio
+            long valor_centavos = pendentes.sum();
+            if (valor_centavos <= 0) {
+                return 0;
+            }
+            verificar_ouvinte();
+            // primeiro no saldo, depois fora dos pendentes: quem lê os dois no meio
+            // pode ver o valor contado duas vezes por um instante, mas nunca sumido
+            SALDO_CENTAVOS.getAndAdd(this, valor_centavos);
+            pendentes.add(-valor_centavos);
+            adicionar_extrato(CodigoMovimentacao.DEPOSITOS_CONSOLIDADOS, 0, valor_centavos, 'C');
+            return valor_centavos;
+        }
     }
 
-    protected abstract boolean pode_sacar(double valor);
+    void definir_ouvinte(OuvinteMovimentacao ouvinte) {
+        this.ouvinte = ouvinte;
+    }
 
-    protected void adicionar_extrato(String descricao, double valor, char tipo) {
-        extrato.add(new ExtratoEntry(descricao, valor, tipo));
+    /**
+     * Passa a guardar o extrato no armazenamento indicado, copiando o que já
+     * existe. Só pode ser usado antes de a conta ficar visível para outras threads.
+     */
+    void trocar_armazenamento_extrato(ArmazenamentoExtrato novo) {
+        synchronized (extrato) {
+            for (int i = 0; i < extrato.tamanho(); i++) {
+                novo.adicionar(extrato.obter_epoch_nanos(i), extrato.obter_tipo(i),
+                        extrato.obter_valor_centavos(i), extrato.obter_codigo(i), extrato.obter_argumento(i));
+            }
+            extrato = novo;
+        }
+    }
+
+    /** Reaplica uma movimentação já aceita no passado (recuperação), sem revalidar regras. */
+    void restaurar_movimentacao(long epoch_nanos, char tipo, long valor_centavos, CodigoMovimentacao codigo,
+            int argumento) {
+        long delta = tipo == 'C' ? valor_centavos : -valor_centavos;
+        SALDO_CENTAVOS.getAndAdd(this, delta);
+        synchronized (extrato) {
+            saldo_lancado_centavos += delta;
+            restaurar_lancamento(epoch_nanos, tipo, valor_centavos, codigo, argumento);
+        }
+    }
+
+    /** Recuperação por instantâneo: soma ao saldo o que ele tinha no instantâneo. */
+    void restaurar_saldo(long saldo_centavos) {
+        SALDO_CENTAVOS.getAndAdd(this, saldo_centavos);
+        synchronized (extrato) {
+            saldo_lancado_centavos += saldo_centavos;
+        }
+    }
+
+    /** Põe no extrato uma movimentação cujo valor já está no saldo (cauda de um instantâneo). */
+    void restaurar_lancamento(long epoch_nanos, char tipo, long valor_centavos, CodigoMovimentacao codigo,
+            int argumento) {
+        synchronized (extrato) {
+            extrato.adicionar(epoch_nanos, tipo, valor_centavos, codigo.obter_codigo(), argumento);
+            ultimo_epoch_nanos = Math.max(ultimo_epoch_nanos, epoch_nanos);
+        }
+    }
+
+    /** Saldo até a última movimentação do extrato. Quem chama deve estar sincronizado no extrato. */
+    long obter_saldo_lancado_centavos() {
+        return saldo_lancado_centavos;
+    }
+
+    /** Cópia das movimentações em ordem de inclusão. Quem chama deve estar sincronizado no extrato. */
+    ExtratoEntry[] copiar_movimentacoes() {
+        return copiar_ultimas_movimentacoes(Integer.MAX_VALUE);
+    }
+
+    /** Cópia das últimas movimentações, ainda em ordem de inclusão. Quem chama deve estar sincronizado no extrato. */
+    ExtratoEntry[] copiar_ultimas_movimentacoes(int quantidade) {
+        int inicio = Math.max(0, extrato.tamanho() - quantidade);
+        ExtratoEntry[] copia = new ExtratoEntry[extrato.tamanho() - inicio];
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = materializar(extrato, inicio + i);
+        }
+        return copia;
+    }
+
+    private static ExtratoEntry materializar(ArmazenamentoExtrato armazenamento, int indice) {
+        if (armazenamento instanceof ExtratoEmMemoria) {
+            return ((ExtratoEmMemoria) armazenamento).obter_entrada(indice);
+        }
+        return new ExtratoEntry(armazenamento.obter_epoch_nanos(indice),
+                CodigoMovimentacao.de_codigo(armazenamento.obter_codigo(indice)), armazenamento.obter_argumento(indice),
+                armazenamento.obter_valor_centavos(indice), armazenamento.obter_tipo(indice));
     }
 
     public String emitir_extrato() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("=== EXTRATO DA CONTA ").append(numero).append(" ===\n");
-        sb.append("Titular: ").append(titular.obter_nome()).append("\n");
-        sb.append("CPF: ").append(titular.obter_cpf_formatado()).append("\n");
-        sb.append("Tipo: ").append(obter_tipo_conta()).append("\n\n");
-        List<ExtratoEntry> movimentacoes_ordenadas = obter_movimentacoes_ordenadas();
-        for (ExtratoEntry entrada : movimentacoes_ordenadas) {
-            sb.append(entrada.toString()).append("\n");
+        StringWriter saida = new StringWriter();
+        try {
+            new RenderizadorExtrato().renderizar(this, saida);
+        } catch (IOException e) {
+            // StringWriter não lança IOException
+            throw new UncheckedIOException(e);
         }
-        sb.append("\nSALDO ATUAL: R$ ").append(String.format("%.2f", saldo));
-        return sb.toString();
+        return saida.toString();
+    }
+
+    /** Linhas específicas da modalidade, escritas depois do saldo atual. */
+    protected void escrever_rodape_extrato(RenderizadorExtrato renderizador, Writer saida) throws IOException {
     }
 
     public List<ExtratoEntry> obter_movimentacoes_ordenadas() {
-        List<ExtratoEntry> movimentacoes_ordenadas = new ArrayList<>(extrato);
-        Collections.sort(movimentacoes_ordenadas, new Comparator<ExtratoEntry>() {
+        return obter_ultimas_movimentacoes(Integer.MAX_VALUE);
+    }
+
+    /**
+     * As últimas movimentações, da mais recente para a mais antiga. O extrato já
+     * está em ordem cronológica de inclusão, então a visão só inverte o índice:
+     * nada é copiado nem ordenado, e percorrer k entradas custa O(k).
+     * Movimentações posteriores à chamada não aparecem na visão.
+     */
+    public List<ExtratoEntry> obter_ultimas_movimentacoes(int quantidade) {
+        if (quantidade < 0) {
+            throw new IllegalArgumentException("Quantidade inválida: " + quantidade);
+        }
+        consolidar_depositos();
+        ArmazenamentoExtrato armazenamento = extrato;
+        int total;
+        synchronized (armazenamento) {
+            total = armazenamento.tamanho();
+        }
+        int tamanho_visao = Math.min(total, quantidade);
+        return new AbstractList<ExtratoEntry>() {
             @Override
-            public int compare(ExtratoEntry e1, ExtratoEntry e2) {
-                return e2.obter_data_hora().compareTo(e1.obter_data_hora());
+            public ExtratoEntry get(int indice) {
+                if (indice < 0 || indice >= tamanho_visao) {
+                    throw new IndexOutOfBoundsException("Índice: " + indice);
+                }
+                return ler_entrada(armazenamento, total - 1 - indice);
             }
-        });
-        return movimentacoes_ordenadas;
+
+            @Override
+            public int size() {
+                return tamanho_visao;
+            }
+        };
+    }
+
+    private static ExtratoEntry ler_entrada(ArmazenamentoExtrato armazenamento, int indice) {
+        if (armazenamento instanceof ExtratoEmMemoria) {
+            // leitura sem trava, ver ExtratoEmMemoria
+            return ((ExtratoEmMemoria) armazenamento).obter_entrada(indice);
+        }
+        synchronized (armazenamento) {
+            return materializar(armazenamento, indice);
+        }
+    }
+
+    /**
+     * Uma página do extrato. Como o extrato está em ordem cronológica, os
+     * limites do período são achados por busca binária nos instantes e só as
+     * entradas da página são lidas: O(log n + k), sem percorrer o histórico.
+     */
+    public PaginaExtrato consultar_extrato(ConsultaExtrato consulta) {
+        consolidar_depositos();
+        ArmazenamentoExtrato armazenamento = extrato;
+        if (armazenamento instanceof ExtratoEmMemoria) {
+            // leitura sem trava, ver ExtratoEmMemoria
+            return consultar(armazenamento, consulta);
+        }
+        synchronized (armazenamento) {
+            return consultar(armazenamento, consulta);
+        }
+    }
+
+    private static PaginaExtrato consultar(ArmazenamentoExtrato armazenamento, ConsultaExtrato consulta) {
+        int total = armazenamento.tamanho();
+        int primeiro = primeiro_indice_a_partir_de(armazenamento, total, consulta.obter_inicio_epoch_nanos());
+        int fim = Math.min(consulta.obter_cursor(),
+                primeiro_indice_a_partir_de(armazenamento, total, consulta.obter_fim_epoch_nanos()));
+        List<ExtratoEntry> movimentacoes = new ArrayList<>(Math.min(consulta.obter_limite(), Math.max(0, fim - primeiro)));
+        int indice = fim - 1;
+        for (; indice >= primeiro && movimentacoes.size() < consulta.obter_limite(); indice--) {
+            if (consulta.aceita(armazenamento.obter_tipo(indice))) {
+                movimentacoes.add(materializar(armazenamento, indice));
+            }
+        }
+        // o cursor é o índice logo acima da próxima entrada a examinar
+        int proximo_cursor = indice >= primeiro ? indice + 1 : PaginaExtrato.SEM_PROXIMA_PAGINA;
+        return new PaginaExtrato(Collections.unmodifiableList(movimentacoes), proximo_cursor);
+    }
+
+    /** Menor índice cujo instante é >= epoch_nanos (total se não houver). */
+    private static int primeiro_indice_a_partir_de(ArmazenamentoExtrato armazenamento, int total, long epoch_nanos) {
+        int baixo = 0;
+        int alto = total;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (armazenamento.obter_epoch_nanos(meio) < epoch_nanos) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
     }
 
     protected abstract String obter_tipo_conta();
 
-    public boolean transferir(ContaBancaria destino, double valor) {
-        if (this.sacar(valor)) {
-            destino.depositar(valor);
-            adicionar_extrato("Transferência para conta " + destino.obter_numero(), valor, 'D');
-            return true;
+    /**
+     * Débito e crédito formam uma única unidade: o crédito só ocorre se o
+     * débito foi aceito e não falha depois dele. As duas operações são feitas
+     * sob as travas dos extratos das duas contas, tomadas em ordem de número
+     * para que transferências opostas não se bloqueiem, então quem também
+     * trava um desses extratos (instantâneo, diário) nunca vê só uma metade.
+     * Pelo mesmo motivo o ouvinte recebe a transferência inteira numa única
+     * notificação, e não uma por conta. Saques e depósitos simultâneos não
+     * precisam dessas travas: o débito é um CAS que reavalia a regra, e nada
+     * gasta o mesmo saldo duas vezes.
+     */
+    boolean transferir(ContaBancaria destino, double valor) {
+        long valor_centavos = Dinheiro.centavosDaOperacao(valor);
+        if (valor_centavos <= 0) {
+            return false;
+        }
+        ContaBancaria primeira = numero <= destino.numero ? this : destino;
+        ContaBancaria segunda = primeira == this ? destino : this;
+        synchronized (primeira.extrato) {
+            synchronized (segunda.extrato) {
+                verificar_ouvinte();
+                if (!destino.comporta_credito(valor_centavos) || !debitar_saldo(valor_centavos)) {
+                    return false;
+                }
+                SALDO_CENTAVOS.getAndAdd(destino, valor_centavos);
+                long epoch_nanos = Math.max(DataHora.agoraEpochNanos(),
+                        Math.max(ultimo_epoch_nanos, destino.ultimo_epoch_nanos));
+                anexar_extrato(epoch_nanos, CodigoMovimentacao.TRANSFERENCIA_ENVIADA, destino.numero,
+                        valor_centavos, 'D');
+                destino.anexar_extrato(epoch_nanos, CodigoMovimentacao.TRANSFERENCIA_RECEBIDA, numero,
+                        valor_centavos, 'C');
+                OuvinteMovimentacao atual = ouvinte;
+                if (atual != null) {
+                    atual.transferencia_registrada(this, destino, epoch_nanos, valor_centavos);
+                }
+                return true;
+            }
         }
-        return false;
     }
-}
\ No newline at end of file
+}
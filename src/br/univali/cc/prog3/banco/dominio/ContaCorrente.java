@@ -1,23 +1,27 @@
 package br.univali.cc.prog3.banco.dominio;
 
+import br.univali.cc.prog3.banco.utilitario.Dinheiro;
+import java.io.IOException;
+import java.io.Writer;
+
 public class ContaCorrente extends ContaBancaria {
-    private double limite;
+    private long limite_centavos;
     private boolean tem_limite;
 
     public ContaCorrente(int numero, double saldo_inicial, Cliente titular) {
         super(numero, saldo_inicial, titular);
-        this.limite = 0;
+        this.limite_centavos = 0;
         this.tem_limite = false;
     }
 
     public ContaCorrente(int numero, double saldo_inicial, Cliente titular, double limite) {
         super(numero, saldo_inicial, titular);
-        this.limite = limite;
+        this.limite_centavos = Dinheiro.paraCentavos(limite);
         this.tem_limite = true;
     }
 
     public double obter_limite() {
-        return limite;
+        return Dinheiro.paraReais(limite_centavos);
     }
 
     public boolean tem_limite() {
@@ -25,8 +29,8 @@ public class ContaCorrente extends ContaBancaria {
     }
 
     @Override
-    protected boolean pode_sacar(double valor) {
-        return saldo + limite >= valor;
+    protected boolean pode_sacar(long saldo_atual_centavos, long valor_centavos) {
+        return saldo_atual_centavos + limite_centavos >= valor_centavos;
     }
 
     @Override
@@ -35,11 +39,9 @@ public class ContaCorrente extends ContaBancaria {
     }
 
     @Override
-    public String emitir_extrato() {
-        String extrato = super.emitir_extrato();
+    protected void escrever_rodape_extrato(RenderizadorExtrato renderizador, Writer saida) throws IOException {
         if (tem_limite) {
-            extrato += "\nLIMITE DISPONÍVEL: R$ " + String.format("%.2f", limite);
+            renderizador.escrever_valor(saida, "\nLIMITE DISPONÍVEL: R$ ", limite_centavos, null);
         }
-        return extrato;
     }
 }
\ No newline at end of file
@@ -1,27 +1,83 @@
 package br.univali.cc.prog3.banco.dominio;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.YearMonth;
+
 public class ContaPoupanca extends ContaBancaria {
-    private static final double RENDIMENTO_MENSAL = 0.005;
+    // 0,5% ao mês, em pontos-base para o cálculo em centavos ser exato
+    private static final long RENDIMENTO_MENSAL_PONTOS_BASE = 50;
+
+    // competência (aaaamm) do último rendimento creditado; guardada pela trava do extrato
+    private int ultima_competencia;
     
     public ContaPoupanca(int numero, double saldoInicial, Cliente titular) {
         super(numero, saldoInicial, titular);
     }
     
+    /** Rendimento da competência atual (ver aplicarRendimentoMensal(YearMonth)). */
     public void aplicarRendimentoMensal() {
-        if (saldo > 0) {
-            double rendimento = saldo * RENDIMENTO_MENSAL;
-            saldo += rendimento;
-            adicionar_extrato("Rendimento mensal", rendimento, 'C');
+        aplicarRendimentoMensal(YearMonth.now());
+    }
+
+    /**
+     * Credita o rendimento da competência, se ainda não foi creditado. A
+     * competência vai como argumento da movimentação, então sobrevive a uma
+     * recuperação pelo diário e repetir a chamada nunca credita duas vezes.
+     * A movimentação é lançada mesmo com rendimento zero (saldo zerado): é
+     * ela que registra que a competência foi apurada.
+     * Retorna o valor creditado em centavos, ou -1 se a competência já havia
+     * sido aplicada.
+     */
+    public long aplicarRendimentoMensal(YearMonth competencia) {
+        int codigo_competencia = competencia.getYear() * 100 + competencia.getMonthValue();
+        synchronized (extrato) {
+            if (codigo_competencia <= ultima_competencia) {
+                return -1;
+            }
+            ultima_competencia = codigo_competencia;
+            long rendimento = ajustar_saldo(ContaPoupanca::calcular_rendimento);
+            adicionar_extrato(CodigoMovimentacao.RENDIMENTO_MENSAL, codigo_competencia, rendimento, 'C');
+            return rendimento;
+        }
+    }
+
+    // centavos inteiros, arredondando meio centavo para cima como o Math.round anterior
+    private static long calcular_rendimento(long saldo_centavos) {
+        if (saldo_centavos <= 0) {
+            return 0;
+        }
+        return (Math.multiplyExact(saldo_centavos, RENDIMENTO_MENSAL_PONTOS_BASE) + 5_000) / 10_000;
+    }
+
+    @Override
+    void restaurar_movimentacao(long epoch_nanos, char tipo, long valor_centavos, CodigoMovimentacao codigo,
+            int argumento) {
+        super.restaurar_movimentacao(epoch_nanos, tipo, valor_centavos, codigo, argumento);
+        if (codigo == CodigoMovimentacao.RENDIMENTO_MENSAL) {
+            restaurar_competencia(argumento);
+        }
+    }
+
+    /** Competência (aaaamm) do último rendimento aplicado, ou 0. Quem chama deve estar sincronizado no extrato. */
+    int obter_ultima_competencia() {
+        return ultima_competencia;
+    }
+
+    // recuperação: a competência pode ter vindo do instantâneo ou de uma movimentação do diário
+    void restaurar_competencia(int competencia) {
+        synchronized (extrato) {
+            ultima_competencia = Math.max(ultima_competencia, competencia);
         }
     }
     
     public double getRendimentoMensal() {
-        return RENDIMENTO_MENSAL * 100;
+        return RENDIMENTO_MENSAL_PONTOS_BASE / 100.0;
     }
     
     @Override
-    protected boolean pode_sacar(double valor) {
-        return saldo >= valor;
+    protected boolean pode_sacar(long saldo_atual_centavos, long valor_centavos) {
+        return saldo_atual_centavos >= valor_centavos;
     }
     
     @Override
@@ -30,9 +86,9 @@ public class ContaPoupanca extends ContaBancaria {
     }
     
     @Override
-    public String emitir_extrato() {
-        String extrato = super.emitir_extrato();
-        extrato += "\nTAXA DE RENDIMENTO MENSAL: " + String.format("%.2f", getRendimentoMensal()) + "%";
-        return extrato;
+    protected void escrever_rodape_extrato(RenderizadorExtrato renderizador, Writer saida) throws IOException {
+        // taxa em centésimos de ponto percentual, para sair com duas casas como o saldo
+        renderizador.escrever_valor(saida, "\nTAXA DE RENDIMENTO MENSAL: ",
+                Math.round(getRendimentoMensal() * 100), "%");
     }
 }
\ No newline at end of file
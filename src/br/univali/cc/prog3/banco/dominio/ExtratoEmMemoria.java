@@ -0,0 +1,83 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import br.univali.cc.prog3.banco.persistencia.ArmazenamentoExtrato;
+import java.util.Arrays;
+
+/**
+ * Extrato no heap, só de anexação. As entradas ficam em blocos de tamanho fixo,
+ * então crescer nunca copia entradas já gravadas, e o tamanho é publicado
+ * (volatile) depois que a entrada está no bloco: leitores que leem o tamanho
+ * antes enxergam todas as entradas até ele sem precisar da trava do extrato.
+ *
+ * Só o primeiro bloco começa pequeno e dobra até o tamanho cheio, para que
+ * milhões de contas com poucas movimentações não paguem um bloco inteiro cada.
+ * Ele é trocado por uma cópia maior, nunca alterado depois de substituído, então
+ * um leitor com a referência antiga continua vendo entradas válidas.
+ *
+ * Só há um escritor por vez (quem anexa está sincronizado no extrato).
+ */
+class ExtratoEmMemoria implements ArmazenamentoExtrato {
+    private static final int BITS_BLOCO = 10;
+    private static final int TAMANHO_BLOCO = 1 << BITS_BLOCO;
+    private static final int MASCARA_BLOCO = TAMANHO_BLOCO - 1;
+    private static final int CAPACIDADE_INICIAL = 4;
+
+    private volatile ExtratoEntry[][] blocos = new ExtratoEntry[4][];
+    private volatile int tamanho;
+
+    @Override
+    public void adicionar(long epoch_nanos, char tipo, long valor_centavos, byte codigo, int argumento) {
+        int indice = tamanho;
+        int bloco = indice >>> BITS_BLOCO;
+        ExtratoEntry[][] atuais = blocos;
+        if (bloco == atuais.length) {
+            atuais = Arrays.copyOf(atuais, atuais.length * 2);
+            blocos = atuais;
+        }
+        if (atuais[bloco] == null) {
+            atuais[bloco] = new ExtratoEntry[bloco == 0 ? CAPACIDADE_INICIAL : TAMANHO_BLOCO];
+        } else if (bloco == 0 && indice == atuais[0].length) {
+            atuais[0] = Arrays.copyOf(atuais[0], indice * 2);
+        }
+        atuais[bloco][indice & MASCARA_BLOCO] =
+                new ExtratoEntry(epoch_nanos, CodigoMovimentacao.de_codigo(codigo), argumento, valor_centavos, tipo);
+        tamanho = indice + 1;
+    }
+
+    @Override
+    public int tamanho() {
+        return tamanho;
+    }
+
+    ExtratoEntry obter_entrada(int indice) {
+        if (indice < 0 || indice >= tamanho) {
+            throw new IndexOutOfBoundsException("Índice: " + indice + ", tamanho: " + tamanho);
+        }
+        return blocos[indice >>> BITS_BLOCO][indice & MASCARA_BLOCO];
+    }
+
+    @Override
+    public long obter_epoch_nanos(int indice) {
+        return obter_entrada(indice).obter_epoch_nanos();
+    }
+
+    @Override
+    public char obter_tipo(int indice) {
+        return obter_entrada(indice).obter_tipo();
+    }
+
+    @Override
+    public long obter_valor_centavos(int indice) {
+        return obter_entrada(indice).obter_valor_centavos();
+    }
+
+    @Override
+    public byte obter_codigo(int indice) {
+        return obter_entrada(indice).obter_codigo().obter_codigo();
+    }
+
+    @Override
+    public int obter_argumento(int indice) {
+        return obter_entrada(indice).obter_argumento();
+    }
+}
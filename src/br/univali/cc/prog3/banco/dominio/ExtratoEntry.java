@@ -1,42 +1,93 @@
 package br.univali.cc.prog3.banco.dominio;
 
+import br.univali.cc.prog3.banco.utilitario.DataHora;
+import br.univali.cc.prog3.banco.utilitario.Dinheiro;
+import br.univali.cc.prog3.banco.utilitario.Formatacao;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 public class ExtratoEntry {
-    private LocalDateTime data_hora;
-    private String descricao;
-    private double valor;
+    private long epoch_nanos;
+    private CodigoMovimentacao codigo;
+    private int argumento;
+    private long valor_centavos;
     private char tipo;
 
-    public ExtratoEntry(String descricao, double valor, char tipo) {
-        this.data_hora = LocalDateTime.now();
-        this.descricao = descricao;
-        this.valor = valor;
+    public ExtratoEntry(CodigoMovimentacao codigo, int argumento, long valor_centavos, char tipo) {
+        this(DataHora.agoraEpochNanos(), codigo, argumento, valor_centavos, tipo);
+    }
+
+    ExtratoEntry(long epoch_nanos, CodigoMovimentacao codigo, int argumento, long valor_centavos, char tipo) {
+        this.epoch_nanos = epoch_nanos;
+        this.codigo = codigo;
+        this.argumento = argumento;
+        this.valor_centavos = valor_centavos;
         this.tipo = tipo;
     }
 
     public LocalDateTime obter_data_hora() {
-        return data_hora;
+        return DataHora.deEpochNanos(epoch_nanos);
+    }
+
+    public long obter_epoch_nanos() {
+        return epoch_nanos;
     }
 
     public String obter_descricao() {
-        return descricao;
+        return codigo.renderizar(argumento);
+    }
+
+    public CodigoMovimentacao obter_codigo() {
+        return codigo;
+    }
+
+    public int obter_argumento() {
+        return argumento;
     }
 
     public double obter_valor() {
-        return valor;
+        return Dinheiro.paraReais(valor_centavos);
+    }
+
+    public long obter_valor_centavos() {
+        return valor_centavos;
     }
 
     public char obter_tipo() {
         return tipo;
     }
 
+    /** Tamanho máximo escrito por escrever. */
+    static final int TAMANHO_MAXIMO_LINHA = 128;
+
+    /** Escreve a linha do extrato ("[dd/MM/yyyy HH:mm:ss] (C) descrição R$ 0.00") no destino. */
+    int escrever(char[] destino, int posicao) {
+        destino[posicao++] = '[';
+        posicao = Formatacao.escreverDataHora(destino, posicao, epoch_nanos);
+        destino[posicao++] = ']';
+        destino[posicao++] = ' ';
+        destino[posicao++] = '(';
+        destino[posicao++] = tipo == 'C' ? 'C' : 'D';
+        destino[posicao++] = ')';
+        destino[posicao++] = ' ';
+        String texto = codigo.obter_texto();
+        texto.getChars(0, texto.length(), destino, posicao);
+        posicao += texto.length();
+        if (codigo.usa_argumento()) {
+            if (argumento < 0) {
+                destino[posicao++] = '-';
+            }
+            posicao = Formatacao.escreverInteiro(destino, posicao, Math.abs((long) argumento));
+        }
+        destino[posicao++] = ' ';
+        destino[posicao++] = 'R';
+        destino[posicao++] = '$';
+        destino[posicao++] = ' ';
+        return Formatacao.escreverValor(destino, posicao, valor_centavos);
+    }
+
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-        String data_formatada = data_hora.format(formatter);
-        String tipo_str = (tipo == 'C') ? "C" : "D";
-        return String.format("[%s] (%s) %s R$ %.2f", data_formatada, tipo_str, descricao, valor);
+        char[] linha = new char[TAMANHO_MAXIMO_LINHA];
+        return new String(linha, 0, escrever(linha, 0));
     }
 }
\ No newline at end of file
@@ -0,0 +1,258 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Diretório de contas do Banco: número (int) → conta, em endereçamento aberto
+ * com sondagem linear sobre vetores primitivos. A busca não encaixota o número
+ * num Integer nem percorre nós de lista: são leituras seguidas no mesmo int[].
+ *
+ * Leituras não usam trava. Só a publicação na tabela é serializada: a conta
+ * é criada antes, fora da trava, com o número reservado. A conta é gravada antes
+ * do número, e o número é publicado com semântica release, então quem encontra
+ * o número (lido com acquire) enxerga a conta. Ao crescer, a tabela nova é
+ * montada inteira e só então publicada. Contas nunca são removidas.
+ *
+ * Além da tabela, as contas ficam num vetor em ordem de criação que só recebe
+ * acréscimos no fim. Um prefixo desse vetor nunca muda, então fotografar o
+ * conjunto de contas é guardar o vetor e o tamanho: O(1), sem copiar e sem
+ * travar quem cria contas.
+ */
+class MapaContas implements Iterable<ContaBancaria> {
+    private static final VarHandle NUMEROS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int CAPACIDADE_INICIAL = 1024;
+    // o número 0 marca posição livre; a conta 0, se existir, fica à parte
+    private static final int LIVRE = 0;
+
+    private static final class Tabela {
+        final int[] numeros;
+        final ContaBancaria[] contas;
+        final int mascara;
+
+        Tabela(int capacidade) {
+            this.numeros = new int[capacidade];
+            this.contas = new ContaBancaria[capacidade];
+            this.mascara = capacidade - 1;
+        }
+    }
+
+    private volatile Tabela tabela = new Tabela(CAPACIDADE_INICIAL);
+    private volatile ContaBancaria conta_zero;
+    // em_ordem é trocado antes de tamanho ser incrementado: quem lê tamanho e
+    // depois em_ordem encontra as primeiras `tamanho` posições preenchidas
+    private volatile ContaBancaria[] em_ordem = new ContaBancaria[CAPACIDADE_INICIAL];
+    private volatile int tamanho;
+    // números em criação; quem pede o mesmo número espera o futuro em vez de criar outra conta
+    private final ConcurrentHashMap<Integer, CompletableFuture<ContaBancaria>> reservas = new ConcurrentHashMap<>();
+
+    ContaBancaria obter(int numero) {
+        if (numero == LIVRE) {
+            return conta_zero;
+        }
+        Tabela atual = tabela;
+        int[] numeros = atual.numeros;
+        int posicao = espalhar(numero) & atual.mascara;
+        while (true) {
+            int encontrado = (int) NUMEROS.getAcquire(numeros, posicao);
+            if (encontrado == numero) {
+                return atual.contas[posicao];
+            }
+            if (encontrado == LIVRE) {
+                return null;
+            }
+            posicao = (posicao + 1) & atual.mascara;
+        }
+    }
+
+    /**
+     * Como ConcurrentHashMap.computeIfAbsent: se o número estiver livre, cria a
+     * conta com criar (chamado uma única vez por número) e a publica. Devolve a
+     * conta associada ao número depois da chamada.
+     *
+     * criar roda fora de qualquer trava do mapa, com o número reservado: a E/S
+     * de uma criação (diário, extrato mapeado) não segura a criação de outras
+     * contas, só quem pede o mesmo número. Se criar falhar, a reserva é
+     * desfeita e quem estava esperando tenta de novo.
+     */
+    ContaBancaria obter_ou_criar(int numero, IntFunction<ContaBancaria> criar) {
+        while (true) {
+            ContaBancaria existente = obter(numero);
+            if (existente != null) {
+                return existente;
+            }
+            CompletableFuture<ContaBancaria> reserva = new CompletableFuture<>();
+            CompletableFuture<ContaBancaria> outra = reservas.putIfAbsent(numero, reserva);
+            if (outra != null) {
+                // concluído com null se a outra criação falhou; de qualquer forma, relê
+                outra.join();
+                continue;
+            }
+            ContaBancaria nova = null;
+            try {
+                // pode ter sido publicada entre a leitura acima e a reserva
+                existente = obter(numero);
+                if (existente != null) {
+                    return existente;
+                }
+                nova = criar.apply(numero);
+                publicar(numero, nova);
+                return nova;
+            } finally {
+                reservas.remove(numero, reserva);
+                reserva.complete(nova);
+            }
+        }
+    }
+
+    private synchronized void publicar(int numero, ContaBancaria nova) {
+        if (numero == LIVRE) {
+            conta_zero = nova;
+        } else {
+            if ((tamanho + 1) * 4 > tabela.numeros.length * 3) {
+                tabela = crescer(tabela);
+            }
+            inserir(tabela, numero, nova);
+        }
+        ContaBancaria[] ordem = em_ordem;
+        if (tamanho == ordem.length) {
+            ordem = Arrays.copyOf(ordem, ordem.length * 2);
+        }
+        ordem[tamanho] = nova;
+        em_ordem = ordem;
+        tamanho++;
+    }
+
+    private static void inserir(Tabela destino, int numero, ContaBancaria conta) {
+        int posicao = espalhar(numero) & destino.mascara;
+        while (destino.numeros[posicao] != LIVRE) {
+            posicao = (posicao + 1) & destino.mascara;
+        }
+        destino.contas[posicao] = conta;
+        NUMEROS.setRelease(destino.numeros, posicao, numero);
+    }
+
+    private static Tabela crescer(Tabela antiga) {
+        Tabela nova = new Tabela(antiga.numeros.length * 2);
+        for (int i = 0; i < antiga.numeros.length; i++) {
+            if (antiga.numeros[i] != LIVRE) {
+                inserir(nova, antiga.numeros[i], antiga.contas[i]);
+            }
+        }
+        return nova;
+    }
+
+    // números de conta costumam ser sequenciais: multiplica e mistura os bits altos
+    private static int espalhar(int numero) {
+        int h = numero * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    boolean vazio() {
+        return tamanho == 0;
+    }
+
+    /**
+     * As contas existentes no momento da chamada, em ordem de criação. A lista
+     * é imutável e não é afetada por contas criadas depois; os saldos, esses,
+     * são lidos ao vivo das próprias contas.
+     */
+    List<ContaBancaria> instantaneo() {
+        int total = tamanho;
+        return new Instantaneo(em_ordem, total);
+    }
+
+    @Override
+    public Iterator<ContaBancaria> iterator() {
+        return instantaneo().iterator();
+    }
+
+    /**
+     * Visão somente leitura e ao vivo como Map: get e containsKey vão direto à
+     * tabela, e cada percurso de entrySet parte de um instantâneo novo.
+     */
+    Map<Integer, ContaBancaria> como_mapa() {
+        return new AbstractMap<Integer, ContaBancaria>() {
+            @Override
+            public ContaBancaria get(Object chave) {
+                return chave instanceof Integer ? obter((Integer) chave) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object chave) {
+                return get(chave) != null;
+            }
+
+            @Override
+            public int size() {
+                return tamanho;
+            }
+
+            @Override
+            public Set<Entry<Integer, ContaBancaria>> entrySet() {
+                return new AbstractSet<Entry<Integer, ContaBancaria>>() {
+                    @Override
+                    public Iterator<Entry<Integer, ContaBancaria>> iterator() {
+                        Iterator<ContaBancaria> contas = instantaneo().iterator();
+                        return new Iterator<Entry<Integer, ContaBancaria>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return contas.hasNext();
+                            }
+
+                            @Override
+                            public Entry<Integer, ContaBancaria> next() {
+                                ContaBancaria conta = contas.next();
+                                return new SimpleImmutableEntry<>(conta.obter_numero(), conta);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return tamanho;
+                    }
+                };
+            }
+        };
+    }
+
+    private static final class Instantaneo extends AbstractList<ContaBancaria> implements RandomAccess {
+        private final ContaBancaria[] contas;
+        private final int tamanho;
+
+        Instantaneo(ContaBancaria[] contas, int tamanho) {
+            this.contas = contas;
+            this.tamanho = tamanho;
+        }
+
+        @Override
+        public ContaBancaria get(int indice) {
+            if (indice < 0 || indice >= tamanho) {
+                throw new IndexOutOfBoundsException("Índice: " + indice);
+            }
+            return contas[indice];
+        }
+
+        @Override
+        public int size() {
+            return tamanho;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import br.univali.cc.prog3.banco.utilitario.Dinheiro;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Motor de execução alternativo ao acesso direto ao Banco, no estilo
+ * "single writer": as contas são repartidas pelo número entre N partições e
+ * cada partição tem uma única thread dona, alimentada por um AnelOperacoes
+ * limitado. Depósitos e saques de uma conta só são submetidos à dona dela,
+ * então entre si nunca disputam nada.
+ *
+ * A exceção são as transferências entre partições, que rodam inteiras na dona
+ * da origem: ContaBancaria.transferir trava os extratos das duas contas e grava
+ * as duas pernas num único registro do diário, então o valor nunca fica em
+ * trânsito entre duas donas. Enquanto isso a dona do destino pode esperar por
+ * aquela trava e repetir o CAS do saldo da sua conta, mas nunca disputa a fila
+ * de outra partição. Quanto mais transferências entram numa conta vindas de
+ * outras partições, mais a sua dona perde essa exclusividade.
+ *
+ * Cada dona aplica um lote de operações, espera uma única vez pelo diário (se
+ * houver) e só então conclui os futuros do lote.
+ */
+public class MotorParticionado implements AutoCloseable {
+    private static final int LOTE_MAXIMO = 256;
+
+    private final Banco banco;
+    private final Particao[] particoes;
+    private final int mascara;
+    // submetidas e ainda não concluídas; close() espera chegar a zero
+    private final AtomicLong em_andamento = new AtomicLong();
+    private volatile boolean encerrando;
+    private volatile boolean parar;
+
+    public MotorParticionado(Banco banco, int particoes_minimas, int capacidade_anel) {
+        int quantidade = 1;
+        while (quantidade < particoes_minimas) {
+            quantidade <<= 1;
+        }
+        this.banco = banco;
+        this.mascara = quantidade - 1;
+        this.particoes = new Particao[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            particoes[i] = new Particao(i, capacidade_anel);
+        }
+        for (Particao particao : particoes) {
+            particao.dona.start();
+        }
+    }
+
+    public MotorParticionado(Banco banco) {
+        this(banco, Runtime.getRuntime().availableProcessors(), 64 * 1024);
+    }
+
+    public CompletableFuture<ResultadoOperacao> depositar(int numero, double valor) {
+        return submeter(Operacao.DEPOSITO, numero, numero, valor);
+    }
+
+    public CompletableFuture<ResultadoOperacao> sacar(int numero, double valor) {
+        return submeter(Operacao.SAQUE, numero, numero, valor);
+    }
+
+    public CompletableFuture<ResultadoOperacao> transferir(int numero_origem, int numero_destino, double valor) {
+        return submeter(Operacao.TRANSFERENCIA, numero_origem, numero_destino, valor);
+    }
+
+    private CompletableFuture<ResultadoOperacao> submeter(byte tipo, int numero, int numero_destino, double valor) {
+        if (Dinheiro.centavosDaOperacao(valor) <= 0) {
+            return CompletableFuture.completedFuture(ResultadoOperacao.VALOR_INVALIDO);
+        }
+        ContaBancaria conta = banco.obter_conta(numero);
+        ContaBancaria destino = numero_destino == numero ? conta : banco.obter_conta(numero_destino);
+        if (conta == null || destino == null) {
+            return CompletableFuture.completedFuture(ResultadoOperacao.CONTA_INEXISTENTE);
+        }
+        em_andamento.incrementAndGet();
+        if (encerrando) {
+            em_andamento.decrementAndGet();
+            throw new IllegalStateException("Motor encerrado");
+        }
+        Operacao operacao = new Operacao(tipo, conta, destino, valor);
+        Particao particao = particao(numero);
+        particao.anel.publicar(operacao);
+        particao.acordar();
+        return operacao.resultado;
+    }
+
+    private Particao particao(int numero) {
+        int h = numero * 0x9E3779B9;
+        return particoes[(h ^ (h >>> 16)) & mascara];
+    }
+
+    /** Recusa novas operações, espera as submetidas terminarem e para as threads donas. */
+    @Override
+    public void close() {
+        encerrando = true;
+        while (em_andamento.get() > 0) {
+            LockSupport.parkNanos(100_000);
+        }
+        parar = true;
+        for (Particao particao : particoes) {
+            particao.acordar();
+        }
+        for (Particao particao : particoes) {
+            try {
+                particao.dona.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class Operacao {
+        static final byte DEPOSITO = 0;
+        static final byte SAQUE = 1;
+        static final byte TRANSFERENCIA = 2;
+
+        final byte tipo;
+        final ContaBancaria conta;
+        final ContaBancaria destino;
+        final double valor;
+        final CompletableFuture<ResultadoOperacao> resultado = new CompletableFuture<>();
+
+        Operacao(byte tipo, ContaBancaria conta, ContaBancaria destino, double valor) {
+            this.tipo = tipo;
+            this.conta = conta;
+            this.destino = destino;
+            this.valor = valor;
+        }
+    }
+
+    private final class Particao implements Runnable {
+        final AnelOperacoes<Operacao> anel;
+        final Thread dona;
+        private volatile boolean dormindo;
+        // só a dona usa: operações do lote atual e seus resultados
+        private final List<Operacao> concluidas = new ArrayList<>();
+        private final List<ResultadoOperacao> resultados = new ArrayList<>();
+
+        Particao(int indice, int capacidade_anel) {
+            this.anel = new AnelOperacoes<>(capacidade_anel);
+            this.dona = new Thread(this, "motor-particao-" + indice);
+            dona.setDaemon(true);
+        }
+
+        void acordar() {
+            if (dormindo) {
+                LockSupport.unpark(dona);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int processadas = 0;
+                Operacao operacao;
+                while (processadas < LOTE_MAXIMO && (operacao = anel.retirar()) != null) {
+                    aplicar(operacao);
+                    processadas++;
+                }
+                if (processadas > 0) {
+                    concluir_lote();
+                } else if (parar) {
+                    return;
+                } else {
+                    dormindo = true;
+                    if (anel.vazio() && !parar) {
+                        LockSupport.park(this);
+                    }
+                    dormindo = false;
+                }
+            }
+        }
+
+        private void aplicar(Operacao operacao) {
+            try {
+                aplicar_sem_protecao(operacao);
+            } catch (RuntimeException e) {
+                // ex.: falha de gravação no diário; a dona segue atendendo as demais
+                operacao.resultado.completeExceptionally(e);
+                em_andamento.decrementAndGet();
+            }
+        }
+
+        private void aplicar_sem_protecao(Operacao operacao) {
+            switch (operacao.tipo) {
+                case Operacao.DEPOSITO:
+                    if (operacao.conta.depositar(operacao.valor)) {
+                        banco.consolidar_se_persistente(operacao.conta);
+                        concluir(operacao, ResultadoOperacao.SUCESSO);
+                    } else {
+                        concluir(operacao, ResultadoOperacao.SALDO_MAXIMO_EXCEDIDO);
+                    }
+                    break;
+                case Operacao.SAQUE:
+                    concluir(operacao, operacao.conta.sacar(operacao.valor)
+                            ? ResultadoOperacao.SUCESSO : ResultadoOperacao.SALDO_INSUFICIENTE);
+                    break;
+                default:
+                    concluir(operacao, operacao.conta.transferir(operacao.destino, operacao.valor)
+                            ? ResultadoOperacao.SUCESSO : ResultadoOperacao.SALDO_INSUFICIENTE);
+                    break;
+            }
+        }
+
+        private void concluir(Operacao operacao, ResultadoOperacao resultado) {
+            concluidas.add(operacao);
+            resultados.add(resultado);
+        }
+
+        private void concluir_lote() {
+            if (concluidas.isEmpty()) {
+                return;
+            }
+            RuntimeException falha = null;
+            try {
+                banco.aguardar_diario();
+            } catch (RuntimeException e) {
+                falha = e;
+            }
+            for (int i = 0; i < concluidas.size(); i++) {
+                if (falha == null) {
+                    concluidas.get(i).resultado.complete(resultados.get(i));
+                } else {
+                    concluidas.get(i).resultado.completeExceptionally(falha);
+                }
+                em_andamento.decrementAndGet();
+            }
+            concluidas.clear();
+            resultados.clear();
+        }
+    }
+}
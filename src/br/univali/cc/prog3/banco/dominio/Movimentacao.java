@@ -1,5 +1,6 @@
 package br.univali.cc.prog3.banco.dominio;
 
+import br.univali.cc.prog3.banco.utilitario.Formatacao;
 import java.time.LocalDateTime;
 
 public class Movimentacao {
@@ -18,9 +19,8 @@ public class Movimentacao {
     }
     
     public String getMovimentacao(){
-        return String.format("[%s] (%c) %s R$%.2f | Saldo: R$%.2f", 
-                dataHora.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")),
-                tipo, descricao, valor, saldoAposMovimentacao);
+        return "[" + Formatacao.DATA_HORA.format(dataHora) + "] (" + tipo + ") " + descricao
+                + " R$" + Formatacao.formatarReais(valor) + " | Saldo: R$" + Formatacao.formatarReais(saldoAposMovimentacao);
     }
     
     // Getters
@@ -0,0 +1,53 @@
+package br.univali.cc.prog3.banco.dominio;
+
+/**
+ * Item de um lote processado por Banco.executar_lote. Tem os mesmos campos
+ * de OperacaoRequest (numero, valor) e TransferenciaRequest (origem, destino, valor).
+ */
+public final class OperacaoLote {
+    public enum Tipo {
+        DEPOSITO,
+        SAQUE,
+        TRANSFERENCIA
+    }
+
+    private final Tipo tipo;
+    private final int numero;
+    private final int numero_destino;
+    private final double valor;
+
+    private OperacaoLote(Tipo tipo, int numero, int numero_destino, double valor) {
+        this.tipo = tipo;
+        this.numero = numero;
+        this.numero_destino = numero_destino;
+        this.valor = valor;
+    }
+
+    public static OperacaoLote deposito(int numero, double valor) {
+        return new OperacaoLote(Tipo.DEPOSITO, numero, numero, valor);
+    }
+
+    public static OperacaoLote saque(int numero, double valor) {
+        return new OperacaoLote(Tipo.SAQUE, numero, numero, valor);
+    }
+
+    public static OperacaoLote transferencia(int numero_origem, int numero_destino, double valor) {
+        return new OperacaoLote(Tipo.TRANSFERENCIA, numero_origem, numero_destino, valor);
+    }
+
+    public Tipo obter_tipo() {
+        return tipo;
+    }
+
+    public int obter_numero() {
+        return numero;
+    }
+
+    public int obter_numero_destino() {
+        return numero_destino;
+    }
+
+    public double obter_valor() {
+        return valor;
+    }
+}
@@ -0,0 +1,12 @@
+package br.univali.cc.prog3.banco.dominio;
+
+interface OuvinteMovimentacao {
+    /** Chamado antes de a conta mudar; lança exceção se a movimentação não poderá ser registrada. */
+    void verificar_disponivel();
+
+    void movimentacao_registrada(ContaBancaria conta, long epoch_nanos, char tipo, long valor_centavos,
+            CodigoMovimentacao codigo, int argumento);
+
+    /** As duas pernas de uma transferência, notificadas juntas (ver ContaBancaria.transferir). */
+    void transferencia_registrada(ContaBancaria origem, ContaBancaria destino, long epoch_nanos, long valor_centavos);
+}
@@ -0,0 +1,29 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import java.util.List;
+
+/** Resultado de Banco.consultar_extrato: movimentações da mais recente para a mais antiga. */
+public final class PaginaExtrato {
+    public static final int SEM_PROXIMA_PAGINA = -1;
+
+    private final List<ExtratoEntry> movimentacoes;
+    private final int proximo_cursor;
+
+    PaginaExtrato(List<ExtratoEntry> movimentacoes, int proximo_cursor) {
+        this.movimentacoes = movimentacoes;
+        this.proximo_cursor = proximo_cursor;
+    }
+
+    public List<ExtratoEntry> obter_movimentacoes() {
+        return movimentacoes;
+    }
+
+    public boolean tem_proxima_pagina() {
+        return proximo_cursor != SEM_PROXIMA_PAGINA;
+    }
+
+    /** Valor para ConsultaExtrato.com_cursor na próxima chamada, ou SEM_PROXIMA_PAGINA. */
+    public int obter_proximo_cursor() {
+        return proximo_cursor;
+    }
+}
@@ -0,0 +1,263 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import br.univali.cc.prog3.banco.persistencia.DiarioMovimentacoes;
+import br.univali.cc.prog3.banco.persistencia.InstantaneoBanco;
+import br.univali.cc.prog3.banco.utilitario.Dinheiro;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Liga as contas de um Banco ao diário e aos instantâneos.
+ *
+ * Toda movimentação de uma conta é registrada no diário dentro do bloco
+ * sincronizado no extrato dela, então a sequência do diário lida dentro desse
+ * mesmo bloco separa com exatidão o que já está no extrato do que ainda virá.
+ * É isso que permite fotografar as contas sem parar as operações.
+ *
+ * Uma transferência vira um único registro, gravado com os extratos das duas
+ * contas travados; na recuperação cada perna é aplicada só se o registro é
+ * posterior ao que o instantâneo já tinha daquela conta.
+ */
+class PersistenciaBanco {
+    private final MapaContas contas;
+    private final DiarioMovimentacoes diario;
+    private final OuvinteMovimentacao ouvinte;
+    // aplicado a toda conta antes de ela ser publicada (ex.: trocar o armazenamento do extrato)
+    private final Consumer<ContaBancaria> preparar_conta;
+    // criações de conta (leitura) x rotação do diário (escrita): garante que toda
+    // conta criada antes do corte já está visível no mapa quando o instantâneo o percorre
+    private final ReentrantReadWriteLock trava_criacao = new ReentrantReadWriteLock();
+
+    PersistenciaBanco(MapaContas contas, DiarioMovimentacoes diario,
+            Consumer<ContaBancaria> preparar_conta) {
+        this.contas = contas;
+        this.diario = diario;
+        this.preparar_conta = preparar_conta;
+        this.ouvinte = new OuvinteMovimentacao() {
+            @Override
+            public void verificar_disponivel() {
+                diario.verificar_disponivel();
+            }
+
+            @Override
+            public void movimentacao_registrada(ContaBancaria conta, long epoch_nanos, char tipo,
+                    long valor_centavos, CodigoMovimentacao codigo, int argumento) {
+                diario.registrar_movimentacao(conta.obter_numero(), epoch_nanos, tipo, valor_centavos,
+                        codigo.obter_codigo(), argumento);
+            }
+
+            @Override
+            public void transferencia_registrada(ContaBancaria origem, ContaBancaria destino, long epoch_nanos,
+                    long valor_centavos) {
+                diario.registrar_transferencia(origem.obter_numero(), destino.obter_numero(), epoch_nanos,
+                        valor_centavos);
+            }
+        };
+    }
+
+    /**
+     * Carrega o instantâneo (se houver), reproduz o diário posterior a ele e
+     * instala o ouvinte em todas as contas. Retorna o numero_conta_sequencial
+     * gravado no instantâneo, ou 0 se não havia instantâneo.
+     */
+    int recuperar() throws IOException {
+        Map<Integer, Long> ultima_sequencia = new HashMap<>();
+        long[] corte = {0};
+        int[] numero_conta_sequencial = {0};
+        InstantaneoBanco.ler(diario.obter_diretorio().resolve(InstantaneoBanco.NOME_ARQUIVO),
+                new InstantaneoBanco.Receptor() {
+                    @Override
+                    public void cabecalho(long corte_instantaneo, int sequencial) {
+                        corte[0] = corte_instantaneo;
+                        numero_conta_sequencial[0] = sequencial;
+                    }
+
+                    @Override
+                    public void conta(int numero, byte modalidade, long limite_centavos, String nome, String cpf,
+                            long ultima, long saldo_centavos, int competencia) {
+                        ContaBancaria conta = contas.obter_ou_criar(numero,
+                                n -> criar_conta_vazia(n, modalidade, limite_centavos, nome, cpf));
+                        conta.restaurar_saldo(saldo_centavos);
+                        if (conta instanceof ContaPoupanca) {
+                            ((ContaPoupanca) conta).restaurar_competencia(competencia);
+                        }
+                        ultima_sequencia.put(numero, ultima);
+                    }
+
+                    @Override
+                    public void movimentacao(int numero, long epoch_nanos, char tipo, long valor_centavos,
+                            byte codigo, int argumento) {
+                        contas.obter(numero).restaurar_lancamento(epoch_nanos, tipo, valor_centavos,
+                                CodigoMovimentacao.de_codigo(codigo), argumento);
+                    }
+                });
+        diario.reproduzir(corte[0], new DiarioMovimentacoes.Receptor() {
+            @Override
+            public void conta_criada(long sequencia, int numero, byte modalidade, long limite_centavos,
+                    String nome, String cpf) {
+                contas.obter_ou_criar(numero, n -> criar_conta_vazia(n, modalidade, limite_centavos, nome, cpf));
+            }
+
+            @Override
+            public void movimentacao(long sequencia, int numero, long epoch_nanos, char tipo, long valor_centavos,
+                    byte codigo, int argumento) {
+                if (posterior(sequencia, numero)) {
+                    restaurar(numero, epoch_nanos, tipo, valor_centavos, codigo, argumento);
+                }
+            }
+
+            @Override
+            public void transferencia(long sequencia, int numero_origem, int numero_destino, long epoch_nanos,
+                    long valor_centavos) {
+                if (posterior(sequencia, numero_origem)) {
+                    restaurar(numero_origem, epoch_nanos, 'D', valor_centavos,
+                            CodigoMovimentacao.TRANSFERENCIA_ENVIADA.obter_codigo(), numero_destino);
+                }
+                if (posterior(sequencia, numero_destino)) {
+                    restaurar(numero_destino, epoch_nanos, 'C', valor_centavos,
+                            CodigoMovimentacao.TRANSFERENCIA_RECEBIDA.obter_codigo(), numero_origem);
+                }
+            }
+
+            // se o registro ainda não estava no instantâneo daquela conta
+            private boolean posterior(long sequencia, int numero) {
+                Long ultima = ultima_sequencia.get(numero);
+                return ultima == null || sequencia > ultima;
+            }
+        });
+        for (ContaBancaria conta : contas) {
+            conta.definir_ouvinte(ouvinte);
+        }
+        return numero_conta_sequencial[0];
+    }
+
+    private ContaBancaria criar_conta_vazia(int numero, byte modalidade, long limite_centavos,
+            String nome, String cpf) {
+        Cliente titular = new Cliente(nome, cpf);
+        ContaBancaria conta;
+        if (modalidade == DiarioMovimentacoes.CONTA_POUPANCA) {
+            conta = new ContaPoupanca(numero, 0, titular);
+        } else if (modalidade == DiarioMovimentacoes.CONTA_CORRENTE_COM_LIMITE) {
+            conta = new ContaCorrente(numero, 0, titular, Dinheiro.paraReais(limite_centavos));
+        } else {
+            conta = new ContaCorrente(numero, 0, titular);
+        }
+        preparar_conta.accept(conta);
+        return conta;
+    }
+
+    private void restaurar(int numero, long epoch_nanos, char tipo, long valor_centavos, byte codigo, int argumento) {
+        contas.obter(numero).restaurar_movimentacao(epoch_nanos, tipo, valor_centavos,
+                CodigoMovimentacao.de_codigo(codigo), argumento);
+    }
+
+    private static byte modalidade(ContaBancaria conta) {
+        if (conta instanceof ContaPoupanca) {
+            return DiarioMovimentacoes.CONTA_POUPANCA;
+        }
+        return ((ContaCorrente) conta).tem_limite()
+                ? DiarioMovimentacoes.CONTA_CORRENTE_COM_LIMITE
+                : DiarioMovimentacoes.CONTA_CORRENTE;
+    }
+
+    private static long limite_centavos(ContaBancaria conta) {
+        return conta instanceof ContaCorrente ? Dinheiro.paraCentavos(((ContaCorrente) conta).obter_limite()) : 0;
+    }
+
+    /** Publica a conta no mapa e no diário; retorna false se o número já existia. */
+    boolean registrar_nova_conta(ContaBancaria nova_conta) {
+        trava_criacao.readLock().lock();
+        try {
+            return contas.obter_ou_criar(nova_conta.obter_numero(), n -> preparar(nova_conta)) == nova_conta;
+        } finally {
+            trava_criacao.readLock().unlock();
+        }
+    }
+
+    private ContaBancaria preparar(ContaBancaria conta) {
+        preparar_conta.accept(conta);
+        Cliente titular = conta.obter_titular();
+        diario.registrar_conta_criada(conta.obter_numero(), modalidade(conta), limite_centavos(conta),
+                titular.obter_nome(), titular.obter_cpf());
+        synchronized (conta.extrato) {
+            for (ExtratoEntry entrada : conta.copiar_movimentacoes()) {
+                ouvinte.movimentacao_registrada(conta, entrada.obter_epoch_nanos(), entrada.obter_tipo(),
+                        entrada.obter_valor_centavos(), entrada.obter_codigo(), entrada.obter_argumento());
+            }
+            conta.definir_ouvinte(ouvinte);
+        }
+        return conta;
+    }
+
+    void aguardar() {
+        diario.aguardar_persistencia();
+    }
+
+    /**
+     * Grava um instantâneo consistente sem bloquear as operações: o diário é
+     * rotacionado, o saldo e as movimentações de cada conta são copiados sob a
+     * trava do seu extrato junto com a sequência do diário naquele instante.
+     *
+     * Retenção: com movimentacoes_retidas igual a Integer.MAX_VALUE o extrato
+     * inteiro vai para o instantâneo e os segmentos anteriores ao corte são
+     * apagados. Com um limite, só as últimas movimentacoes_retidas de cada conta
+     * vão para o instantâneo, as de fora são somadas num "Saldo anterior" (o
+     * extrato recuperado ainda fecha com o saldo) e os segmentos anteriores ao
+     * corte são arquivados, não apagados: o histórico completo continua no disco.
+     */
+    void gravar_instantaneo(int numero_conta_sequencial, int movimentacoes_retidas) throws IOException {
+        long corte;
+        trava_criacao.writeLock().lock();
+        try {
+            corte = diario.rotacionar();
+        } finally {
+            trava_criacao.writeLock().unlock();
+        }
+        try (InstantaneoBanco.Gravador gravador = InstantaneoBanco.gravar(
+                diario.obter_diretorio().resolve(InstantaneoBanco.NOME_ARQUIVO), corte, numero_conta_sequencial)) {
+            for (ContaBancaria conta : contas) {
+                ExtratoEntry[] entradas;
+                long ultima_sequencia;
+                // o saldo lançado, e não saldo_centavos: o CAS do saldo acontece antes
+                // do lançamento entrar no extrato e os dois precisam bater
+                long saldo_centavos;
+                int competencia;
+                synchronized (conta.extrato) {
+                    entradas = conta.copiar_ultimas_movimentacoes(movimentacoes_retidas);
+                    saldo_centavos = conta.obter_saldo_lancado_centavos();
+                    competencia = conta instanceof ContaPoupanca
+                            ? ((ContaPoupanca) conta).obter_ultima_competencia() : 0;
+                    ultima_sequencia = diario.sequencia_registrada();
+                }
+                long anterior_centavos = saldo_centavos;
+                for (ExtratoEntry entrada : entradas) {
+                    anterior_centavos -= entrada.obter_tipo() == 'C'
+                            ? entrada.obter_valor_centavos() : -entrada.obter_valor_centavos();
+                }
+                Cliente titular = conta.obter_titular();
+                gravador.conta(conta.obter_numero(), modalidade(conta), limite_centavos(conta), titular.obter_nome(),
+                        titular.obter_cpf(), ultima_sequencia, saldo_centavos, competencia,
+                        entradas.length + (anterior_centavos != 0 ? 1 : 0));
+                if (anterior_centavos != 0) {
+                    gravador.movimentacao(entradas.length > 0 ? entradas[0].obter_epoch_nanos() : 0,
+                            anterior_centavos > 0 ? 'C' : 'D', Math.abs(anterior_centavos),
+                            CodigoMovimentacao.SALDO_ANTERIOR.obter_codigo(), 0);
+                }
+                for (ExtratoEntry entrada : entradas) {
+                    gravador.movimentacao(entrada.obter_epoch_nanos(), entrada.obter_tipo(),
+                            entrada.obter_valor_centavos(), entrada.obter_codigo().obter_codigo(),
+                            entrada.obter_argumento());
+                }
+            }
+            gravador.concluir();
+        }
+        if (movimentacoes_retidas == Integer.MAX_VALUE) {
+            diario.descartar_segmentos_anteriores(corte);
+        } else {
+            diario.arquivar_segmentos_anteriores(corte);
+        }
+    }
+}
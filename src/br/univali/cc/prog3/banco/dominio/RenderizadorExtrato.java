@@ -0,0 +1,59 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import br.univali.cc.prog3.banco.utilitario.Formatacao;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escreve o extrato de uma conta linha a linha num Writer ou canal, no mesmo
+ * formato de ContaBancaria.emitir_extrato. Cada linha é montada num único
+ * char[] reaproveitado, então exportar um extrato enorme usa memória constante
+ * e não cria Formatter nem String por movimentação.
+ *
+ * Não é thread-safe: use uma instância por thread (ou por exportação).
+ */
+public final class RenderizadorExtrato {
+    private static final int TAMANHO_BUFFER_CANAL = 8 * 1024;
+
+    private final char[] linha = new char[ExtratoEntry.TAMANHO_MAXIMO_LINHA + 1];
+
+    public void renderizar(ContaBancaria conta, WritableByteChannel canal) throws IOException {
+        Writer saida = Channels.newWriter(canal, StandardCharsets.UTF_8.newEncoder(), TAMANHO_BUFFER_CANAL);
+        renderizar(conta, saida);
+        // sem close(): o canal continua sendo de quem chamou
+        saida.flush();
+    }
+
+    public void renderizar(ContaBancaria conta, Writer saida) throws IOException {
+        Cliente titular = conta.obter_titular();
+        saida.write("=== EXTRATO DA CONTA ");
+        saida.write(Integer.toString(conta.obter_numero()));
+        saida.write(" ===\nTitular: ");
+        // titular sem nome sai como "null", o mesmo texto do extrato montado com StringBuilder
+        saida.write(String.valueOf(titular.obter_nome()));
+        saida.write("\nCPF: ");
+        saida.write(titular.obter_cpf_formatado());
+        saida.write("\nTipo: ");
+        saida.write(conta.obter_tipo_conta());
+        saida.write("\n\n");
+        for (ExtratoEntry entrada : conta.obter_movimentacoes_ordenadas()) {
+            int tamanho = entrada.escrever(linha, 0);
+            linha[tamanho++] = '\n';
+            saida.write(linha, 0, tamanho);
+        }
+        escrever_valor(saida, "\nSALDO ATUAL: R$ ", conta.obter_saldo_centavos(), null);
+        conta.escrever_rodape_extrato(this, saida);
+    }
+
+    /** Escreve rotulo, o valor em centavos formatado como %.2f e o sufixo (se houver). */
+    void escrever_valor(Writer saida, String rotulo, long centavos, String sufixo) throws IOException {
+        saida.write(rotulo);
+        saida.write(linha, 0, Formatacao.escreverValor(linha, 0, centavos));
+        if (sufixo != null) {
+            saida.write(sufixo);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import br.univali.cc.prog3.banco.excecao.ContaInexistenteException;
+import br.univali.cc.prog3.banco.excecao.SaldoInsuficienteException;
+import br.univali.cc.prog3.banco.excecao.ValorNegativoException;
+
+public enum ResultadoOperacao {
+    SUCESSO,
+    CONTA_INEXISTENTE,
+    VALOR_INVALIDO,
+    SALDO_INSUFICIENTE,
+    /** Depósito recusado porque o saldo passaria do máximo que a conta comporta. */
+    SALDO_MAXIMO_EXCEDIDO;
+
+    public boolean sucesso() {
+        return this == SUCESSO;
+    }
+
+    /**
+     * Para quem ainda quer exceções sem pagar por elas: lança a instância
+     * pré-alocada (sem stack trace) que corresponde à falha.
+     */
+    public void verificar() throws ContaInexistenteException, ValorNegativoException, SaldoInsuficienteException {
+        switch (this) {
+            case CONTA_INEXISTENTE:
+                throw ContaInexistenteException.PREALOCADA;
+            case VALOR_INVALIDO:
+                throw ValorNegativoException.PREALOCADA;
+            case SALDO_INSUFICIENTE:
+                throw SaldoInsuficienteException.PREALOCADA;
+            case SALDO_MAXIMO_EXCEDIDO:
+                throw ValorNegativoException.PREALOCADA_SALDO_MAXIMO;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package br.univali.cc.prog3.banco.dominio;
+
+/** Resultado de Banco.aplicar_rendimento_mensal. */
+public final class ResumoRendimento {
+    private final int contas_creditadas;
+    private final int contas_ja_creditadas;
+    private final long total_centavos;
+
+    ResumoRendimento(int contas_creditadas, int contas_ja_creditadas, long total_centavos) {
+        this.contas_creditadas = contas_creditadas;
+        this.contas_ja_creditadas = contas_ja_creditadas;
+        this.total_centavos = total_centavos;
+    }
+
+    ResumoRendimento somar(ResumoRendimento outro) {
+        return new ResumoRendimento(contas_creditadas + outro.contas_creditadas,
+                contas_ja_creditadas + outro.contas_ja_creditadas, total_centavos + outro.total_centavos);
+    }
+
+    /** Poupanças que receberam rendimento nesta execução (saldo zerado não rende). */
+    public int obter_contas_creditadas() {
+        return contas_creditadas;
+    }
+
+    /** Poupanças puladas porque a competência já tinha sido aplicada nelas. */
+    public int obter_contas_ja_creditadas() {
+        return contas_ja_creditadas;
+    }
+
+    public long obter_total_centavos() {
+        return total_centavos;
+    }
+}
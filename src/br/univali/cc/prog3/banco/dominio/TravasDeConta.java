@@ -0,0 +1,56 @@
+package br.univali.cc.prog3.banco.dominio;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conjunto fixo de travas compartilhadas entre as contas (lock striping).
+ * Contas cujo número cai em listras diferentes podem ser movimentadas em paralelo.
+ */
+class TravasDeConta {
+    private final ReentrantLock[] travas;
+    private final int mascara;
+
+    TravasDeConta(int quantidade_minima) {
+        int quantidade = 1;
+        while (quantidade < quantidade_minima) {
+            quantidade <<= 1;
+        }
+        this.travas = new ReentrantLock[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            travas[i] = new ReentrantLock();
+        }
+        this.mascara = quantidade - 1;
+    }
+
+    int indice(int numero_conta) {
+        // espalha números sequenciais (1001, 1002...) entre as listras
+        int h = numero_conta * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    ReentrantLock trava(int numero_conta) {
+        return travas[indice(numero_conta)];
+    }
+
+    /**
+     * Trava as listras das duas contas sempre na ordem crescente de índice,
+     * de modo que transferências A→B e B→A simultâneas nunca se bloqueiem mutuamente.
+     */
+    void travar_par(int numero_a, int numero_b) {
+        int indice_a = indice(numero_a);
+        int indice_b = indice(numero_b);
+        travas[Math.min(indice_a, indice_b)].lock();
+        if (indice_a != indice_b) {
+            travas[Math.max(indice_a, indice_b)].lock();
+        }
+    }
+
+    void destravar_par(int numero_a, int numero_b) {
+        int indice_a = indice(numero_a);
+        int indice_b = indice(numero_b);
+        if (indice_a != indice_b) {
+            travas[Math.max(indice_a, indice_b)].unlock();
+        }
+        travas[Math.min(indice_a, indice_b)].unlock();
+    }
+}
@@ -0,0 +1,318 @@
+package br.univali.cc.prog3.banco.dto;
+
+/**
+ * Leitura e escrita de JSON para os DTOs da API, escrita à mão: sem
+ * reflexão, sem biblioteca e sem mapa intermediário. Cada campo é lido
+ * direto no tipo do setter correspondente; campos desconhecidos são ignorados.
+ *
+ * Só objetos planos são aceitos (valores texto, número, booleano ou null),
+ * que é tudo o que os pedidos da API usam. Qualquer outra coisa, ou JSON mal
+ * formado, lança IllegalArgumentException.
+ */
+public final class CodecJson {
+    private CodecJson() {
+    }
+
+    public static OperacaoRequest lerOperacaoRequest(CharSequence json) {
+        OperacaoRequest request = new OperacaoRequest();
+        new Leitor(json).lerObjeto((campo, leitor) -> {
+            switch (campo) {
+                case "numero":
+                    request.setNumero(leitor.lerInteiro());
+                    break;
+                case "valor":
+                    request.setValor(leitor.lerNumero());
+                    break;
+                case "chaveIdempotencia":
+                    request.setChaveIdempotencia(leitor.lerTextoOuNulo());
+                    break;
+                default:
+                    leitor.ignorarValor();
+            }
+        });
+        return request;
+    }
+
+    public static TransferenciaRequest lerTransferenciaRequest(CharSequence json) {
+        TransferenciaRequest request = new TransferenciaRequest();
+        new Leitor(json).lerObjeto((campo, leitor) -> {
+            switch (campo) {
+                case "numeroOrigem":
+                    request.setNumeroOrigem(leitor.lerInteiro());
+                    break;
+                case "numeroDestino":
+                    request.setNumeroDestino(leitor.lerInteiro());
+                    break;
+                case "valor":
+                    request.setValor(leitor.lerNumero());
+                    break;
+                case "chaveIdempotencia":
+                    request.setChaveIdempotencia(leitor.lerTextoOuNulo());
+                    break;
+                default:
+                    leitor.ignorarValor();
+            }
+        });
+        return request;
+    }
+
+    public static CriarContaRequest lerCriarContaRequest(CharSequence json) {
+        CriarContaRequest request = new CriarContaRequest();
+        new Leitor(json).lerObjeto((campo, leitor) -> {
+            switch (campo) {
+                case "saldoInicial":
+                    request.setSaldoInicial(leitor.lerNumero());
+                    break;
+                case "limite":
+                    request.setLimite(leitor.lerNulo() ? null : leitor.lerNumero());
+                    break;
+                case "nomeTitular":
+                    request.setNomeTitular(leitor.lerTextoOuNulo());
+                    break;
+                case "cpfTitular":
+                    request.setCpfTitular(leitor.lerTextoOuNulo());
+                    break;
+                default:
+                    leitor.ignorarValor();
+            }
+        });
+        return request;
+    }
+
+    /** dados pode ser null, Boolean, Number ou String. */
+    public static String escreverResposta(ApiResponse<?> resposta) {
+        StringBuilder saida = new StringBuilder(64);
+        saida.append("{\"sucesso\":").append(resposta.isSucesso()).append(",\"mensagem\":");
+        escreverValor(saida, resposta.getMensagem());
+        saida.append(",\"dados\":");
+        escreverValor(saida, resposta.getDados());
+        return saida.append('}').toString();
+    }
+
+    private static void escreverValor(StringBuilder saida, Object valor) {
+        if (valor == null) {
+            saida.append("null");
+        } else if (valor instanceof String) {
+            escreverTexto(saida, (String) valor);
+        } else if (valor instanceof Double || valor instanceof Float) {
+            double numero = ((Number) valor).doubleValue();
+            if (Double.isNaN(numero) || Double.isInfinite(numero)) {
+                throw new IllegalArgumentException("Número sem representação em JSON: " + numero);
+            }
+            saida.append(numero);
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            saida.append(valor);
+        } else {
+            throw new IllegalArgumentException("Tipo sem codificação JSON: " + valor.getClass().getName());
+        }
+    }
+
+    private static void escreverTexto(StringBuilder saida, String texto) {
+        saida.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':
+                    saida.append("\\\"");
+                    break;
+                case '\\':
+                    saida.append("\\\\");
+                    break;
+                case '\n':
+                    saida.append("\\n");
+                    break;
+                case '\r':
+                    saida.append("\\r");
+                    break;
+                case '\t':
+                    saida.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        saida.append("\\u00").append(Character.forDigit(c >> 4, 16))
+                                .append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        saida.append(c);
+                    }
+            }
+        }
+        saida.append('"');
+    }
+
+    private interface ReceptorCampo {
+        void campo(String nome, Leitor leitor);
+    }
+
+    private static final class Leitor {
+        private final CharSequence json;
+        private int posicao;
+
+        Leitor(CharSequence json) {
+            this.json = json;
+        }
+
+        void lerObjeto(ReceptorCampo receptor) {
+            esperar('{');
+            if (!consumir('}')) {
+                do {
+                    String nome = lerTexto();
+                    esperar(':');
+                    receptor.campo(nome, this);
+                } while (consumir(','));
+                esperar('}');
+            }
+            pularEspacos();
+            if (posicao != json.length()) {
+                throw erro("conteúdo após o objeto");
+            }
+        }
+
+        double lerNumero() {
+            pularEspacos();
+            int inicio = posicao;
+            while (posicao < json.length() && "+-0123456789.eE".indexOf(json.charAt(posicao)) >= 0) {
+                posicao++;
+            }
+            if (inicio == posicao) {
+                throw erro("número esperado");
+            }
+            try {
+                return Double.parseDouble(json.subSequence(inicio, posicao).toString());
+            } catch (NumberFormatException e) {
+                throw erro("número inválido");
+            }
+        }
+
+        int lerInteiro() {
+            double numero = lerNumero();
+            if (numero != Math.rint(numero) || numero < Integer.MIN_VALUE || numero > Integer.MAX_VALUE) {
+                throw erro("inteiro esperado");
+            }
+            return (int) numero;
+        }
+
+        boolean lerNulo() {
+            pularEspacos();
+            if (comecaCom("null")) {
+                posicao += 4;
+                return true;
+            }
+            return false;
+        }
+
+        String lerTextoOuNulo() {
+            return lerNulo() ? null : lerTexto();
+        }
+
+        String lerTexto() {
+            esperar('"');
+            StringBuilder texto = new StringBuilder();
+            while (true) {
+                if (posicao >= json.length()) {
+                    throw erro("texto não terminado");
+                }
+                char c = json.charAt(posicao++);
+                if (c == '"') {
+                    return texto.toString();
+                }
+                if (c != '\\') {
+                    texto.append(c);
+                    continue;
+                }
+                if (posicao >= json.length()) {
+                    throw erro("escape incompleto");
+                }
+                char escape = json.charAt(posicao++);
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        texto.append(escape);
+                        break;
+                    case 'b':
+                        texto.append('\b');
+                        break;
+                    case 'f':
+                        texto.append('\f');
+                        break;
+                    case 'n':
+                        texto.append('\n');
+                        break;
+                    case 'r':
+                        texto.append('\r');
+                        break;
+                    case 't':
+                        texto.append('\t');
+                        break;
+                    case 'u':
+                        if (posicao + 4 > json.length()) {
+                            throw erro("escape \\u incompleto");
+                        }
+                        int codigo = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digito = Character.digit(json.charAt(posicao++), 16);
+                            if (digito < 0) {
+                                throw erro("escape \\u inválido");
+                            }
+                            codigo = (codigo << 4) | digito;
+                        }
+                        texto.append((char) codigo);
+                        break;
+                    default:
+                        throw erro("escape inválido");
+                }
+            }
+        }
+
+        void ignorarValor() {
+            pularEspacos();
+            if (posicao >= json.length()) {
+                throw erro("valor esperado");
+            }
+            char c = json.charAt(posicao);
+            if (c == '"') {
+                lerTexto();
+            } else if (comecaCom("true")) {
+                posicao += 4;
+            } else if (comecaCom("false")) {
+                posicao += 5;
+            } else if (!lerNulo()) {
+                lerNumero();
+            }
+        }
+
+        private boolean comecaCom(String palavra) {
+            int fim = posicao + palavra.length();
+            return fim <= json.length() && json.subSequence(posicao, fim).toString().equals(palavra);
+        }
+
+        private void esperar(char c) {
+            if (!consumir(c)) {
+                throw erro("'" + c + "' esperado");
+            }
+        }
+
+        private boolean consumir(char c) {
+            pularEspacos();
+            if (posicao < json.length() && json.charAt(posicao) == c) {
+                posicao++;
+                return true;
+            }
+            return false;
+        }
+
+        private void pularEspacos() {
+            while (posicao < json.length()) {
+                char c = json.charAt(posicao);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    return;
+                }
+                posicao++;
+            }
+        }
+
+        private IllegalArgumentException erro(String motivo) {
+            return new IllegalArgumentException("JSON inválido na posição " + posicao + ": " + motivo);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package br.univali.cc.prog3.banco.dto;
 public class CriarContaRequest {
     private double saldoInicial;
     private Double limite;
+    private String nomeTitular;
+    private String cpfTitular;
 
     public CriarContaRequest() {}
 
@@ -27,6 +29,22 @@ public class CriarContaRequest {
         this.limite = limite;
     }
 
+    public String getNomeTitular() {
+        return nomeTitular;
+    }
+
+    public void setNomeTitular(String nomeTitular) {
+        this.nomeTitular = nomeTitular;
+    }
+
+    public String getCpfTitular() {
+        return cpfTitular;
+    }
+
+    public void setCpfTitular(String cpfTitular) {
+        this.cpfTitular = cpfTitular;
+    }
+
     public boolean isEspecial() {
         return limite != null && limite > 0;
     }
@@ -3,6 +3,8 @@ package br.univali.cc.prog3.banco.dto;
 public class OperacaoRequest {
     private int numero;
     private double valor;
+    // opcional: novas tentativas com a mesma chave recebem o resultado da primeira
+    private String chaveIdempotencia;
 
     public OperacaoRequest() {}
 
@@ -26,4 +28,12 @@ public class OperacaoRequest {
     public void setValor(double valor) {
         this.valor = valor;
     }
+
+    public String getChaveIdempotencia() {
+        return chaveIdempotencia;
+    }
+
+    public void setChaveIdempotencia(String chaveIdempotencia) {
+        this.chaveIdempotencia = chaveIdempotencia;
+    }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ public class TransferenciaRequest {
     private int numeroOrigem;
     private int numeroDestino;
     private double valor;
+    // opcional: novas tentativas com a mesma chave recebem o resultado da primeira
+    private String chaveIdempotencia;
 
     public TransferenciaRequest() {}
 
@@ -36,4 +38,12 @@ public class TransferenciaRequest {
     public void setValor(double valor) {
         this.valor = valor;
     }
+
+    public String getChaveIdempotencia() {
+        return chaveIdempotencia;
+    }
+
+    public void setChaveIdempotencia(String chaveIdempotencia) {
+        this.chaveIdempotencia = chaveIdempotencia;
+    }
 }
\ No newline at end of file
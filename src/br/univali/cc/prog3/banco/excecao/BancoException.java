@@ -8,4 +8,12 @@ public class BancoException extends Exception {
     public BancoException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * Exceção sem stack trace e sem supressão, barata de lançar e segura para ser
+     * pré-alocada e compartilhada entre threads (ver as constantes PREALOCADA).
+     */
+    protected BancoException(String message, boolean sem_rastro) {
+        super(message, null, !sem_rastro, !sem_rastro);
+    }
 }
\ No newline at end of file
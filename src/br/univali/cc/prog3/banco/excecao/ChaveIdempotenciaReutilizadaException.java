@@ -0,0 +1,12 @@
+package br.univali.cc.prog3.banco.excecao;
+
+/**
+ * Chave de idempotência reenviada com outro pedido (ver CacheIdempotencia).
+ * Continua sendo uma IllegalArgumentException, que é o que o cache lançava
+ * antes; o tipo próprio permite à API responder 409 em vez de 400.
+ */
+public class ChaveIdempotenciaReutilizadaException extends IllegalArgumentException {
+    public ChaveIdempotenciaReutilizadaException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,14 @@
 package br.univali.cc.prog3.banco.excecao;
 
 public class ContaInexistenteException extends BancoException {
+    /** Pré-alocada e sem stack trace (ver ResultadoOperacao.verificar). */
+    public static final ContaInexistenteException PREALOCADA = new ContaInexistenteException("Conta não encontrada", true);
+
     public ContaInexistenteException(String message) {
         super(message);
     }
+
+    private ContaInexistenteException(String message, boolean sem_rastro) {
+        super(message, sem_rastro);
+    }
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package br.univali.cc.prog3.banco.excecao;
 
 public class SaldoInsuficienteException extends BancoException {
+    /** Compartilhada entre threads: não tem stack trace nem o valor na mensagem. */
+    public static final SaldoInsuficienteException PREALOCADA = new SaldoInsuficienteException("Saldo insuficiente", true);
+
     public SaldoInsuficienteException(String message) {
         super(message);
     }
+
+    private SaldoInsuficienteException(String message, boolean sem_rastro) {
+        super(message, sem_rastro);
+    }
 }
\ No newline at end of file
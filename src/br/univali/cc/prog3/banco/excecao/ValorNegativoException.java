@@ -1,7 +1,17 @@
 package br.univali.cc.prog3.banco.excecao;
 
 public class ValorNegativoException extends BancoException {
+    /** Sem stack trace; a mensagem não diz qual operação foi rejeitada. */
+    public static final ValorNegativoException PREALOCADA = new ValorNegativoException("Valor da operação deve ser positivo", true);
+    /** Sem stack trace; para o valor recusado por levar o saldo acima do máximo da conta. */
+    public static final ValorNegativoException PREALOCADA_SALDO_MAXIMO =
+            new ValorNegativoException("Valor excede o saldo máximo da conta", true);
+
     public ValorNegativoException(String message) {
         super(message);
     }
+
+    private ValorNegativoException(String message, boolean sem_rastro) {
+        super(message, sem_rastro);
+    }
 }
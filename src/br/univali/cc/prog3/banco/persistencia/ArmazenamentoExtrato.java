@@ -0,0 +1,23 @@
+package br.univali.cc.prog3.banco.persistencia;
+
+/**
+ * Armazenamento das movimentações de uma conta, em ordem de inclusão.
+ * A descrição chega já codificada (código + argumento, ver CodigoMovimentacao).
+ * As implementações não precisam ser thread-safe: a conta dona sincroniza
+ * no próprio armazenamento em toda leitura e escrita.
+ */
+public interface ArmazenamentoExtrato {
+    void adicionar(long epoch_nanos, char tipo, long valor_centavos, byte codigo, int argumento);
+
+    int tamanho();
+
+    long obter_epoch_nanos(int indice);
+
+    char obter_tipo(int indice);
+
+    long obter_valor_centavos(int indice);
+
+    byte obter_codigo(int indice);
+
+    int obter_argumento(int indice);
+}
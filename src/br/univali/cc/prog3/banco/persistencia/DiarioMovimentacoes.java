@@ -0,0 +1,563 @@
+package br.univali.cc.prog3.banco.persistencia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Diário binário somente-anexação (write-ahead log) das movimentações do banco.
+ *
+ * O diário é uma sequência de segmentos diario-NNN.log num diretório; cada
+ * segmento começa com [magia int][sequência base long] e cada registro é
+ * gravado como [tamanho int][conteúdo][crc32 int]. Os registros são numerados
+ * a partir da base do segmento, o que permite descartar segmentos inteiros
+ * cobertos por um instantâneo (ver rotacionar, descartar_segmentos_anteriores
+ * e arquivar_segmentos_anteriores).
+ *
+ * Uma única thread escritora grava tudo o que se acumulou desde o último fsync
+ * e faz um único force() para o grupo inteiro (group commit); quem precisa de
+ * durabilidade chama aguardar_persistencia() e é liberado quando o seu grupo
+ * chega ao disco.
+ *
+ * Uma transferência é um único registro com as duas contas: como o CRC cobre
+ * o registro inteiro, a recuperação vê as duas pernas ou nenhuma.
+ */
+public class DiarioMovimentacoes implements Closeable {
+    public static final byte CONTA_CORRENTE = 0;
+    public static final byte CONTA_CORRENTE_COM_LIMITE = 1;
+    public static final byte CONTA_POUPANCA = 2;
+    /** Subpasta para onde arquivar_segmentos_anteriores move os segmentos. */
+    public static final String PASTA_ARQUIVO = "arquivo";
+
+    private static final int MAGIA_SEGMENTO = 0x44495232;
+    private static final int TAMANHO_CABECALHO = 4 + 8;
+    private static final String PREFIXO_SEGMENTO = "diario-";
+    private static final String SUFIXO_SEGMENTO = ".log";
+    private static final byte REGISTRO_CONTA_CRIADA = 1;
+    private static final byte REGISTRO_MOVIMENTACAO = 2;
+    private static final byte REGISTRO_TRANSFERENCIA = 3;
+    private static final int TAMANHO_MAXIMO_REGISTRO = 1 << 20;
+    private static final int TAMANHO_MAXIMO_TEXTO = 0xFFFF;
+
+    /** Recebe os registros do diário, na ordem em que foram gravados, com a sua sequência. */
+    public interface Receptor {
+        void conta_criada(long sequencia, int numero, byte modalidade, long limite_centavos, String nome, String cpf);
+
+        void movimentacao(long sequencia, int numero, long epoch_nanos, char tipo, long valor_centavos,
+                byte codigo, int argumento);
+
+        void transferencia(long sequencia, int numero_origem, int numero_destino, long epoch_nanos,
+                long valor_centavos);
+    }
+
+    private final Path diretorio;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition ha_dados = trava.newCondition();
+    private final Condition persistido = trava.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final Thread escritor;
+
+    private FileChannel canal;
+    private long base_atual;
+    private ByteBuffer pendente = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer em_gravacao = ByteBuffer.allocate(64 * 1024);
+    private long sequencia_registrada;
+    private long sequencia_persistida;
+    private boolean reproduzido;
+    private boolean rotacao_solicitada;
+    private int rotacao_deslocamento;
+    private long rotacao_base;
+    // lido sem a trava por verificar_disponivel
+    private volatile IOException falha;
+    private boolean fechado;
+
+    public DiarioMovimentacoes(Path diretorio) throws IOException {
+        this.diretorio = diretorio;
+        Files.createDirectories(diretorio);
+        List<Long> bases = listar_bases();
+        if (bases.isEmpty()) {
+            this.base_atual = 0;
+            this.canal = criar_segmento(0);
+        } else {
+            this.base_atual = bases.get(bases.size() - 1);
+            this.canal = FileChannel.open(caminho_segmento(base_atual),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        this.escritor = new Thread(this::laco_escritor, "diario-movimentacoes");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    public Path obter_diretorio() {
+        return diretorio;
+    }
+
+    private Path caminho_segmento(long base) {
+        return diretorio.resolve(String.format("%s%020d%s", PREFIXO_SEGMENTO, base, SUFIXO_SEGMENTO));
+    }
+
+    private List<Long> listar_bases() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, PREFIXO_SEGMENTO + "*" + SUFIXO_SEGMENTO)) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                bases.add(Long.parseLong(nome.substring(PREFIXO_SEGMENTO.length(), nome.length() - SUFIXO_SEGMENTO.length())));
+            }
+        }
+        Collections.sort(bases);
+        return bases;
+    }
+
+    private FileChannel criar_segmento(long base) throws IOException {
+        FileChannel novo = FileChannel.open(caminho_segmento(base), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        novo.truncate(0);
+        escrever_cabecalho(novo, base);
+        sincronizar_diretorio();
+        return novo;
+    }
+
+    // sem isso, uma queda logo depois pode perder a entrada do segmento novo no diretório
+    private void sincronizar_diretorio() throws IOException {
+        try (FileChannel pasta = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            pasta.force(true);
+        } catch (IOException e) {
+            // alguns sistemas (Windows) não abrem diretórios como canal; lá não há o que sincronizar
+            if (Files.isDirectory(diretorio)) {
+                return;
+            }
+            throw e;
+        }
+    }
+
+    private static void escrever_cabecalho(FileChannel destino, long base) throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+        cabecalho.putInt(MAGIA_SEGMENTO).putLong(base).flip();
+        destino.position(0);
+        while (cabecalho.hasRemaining()) {
+            destino.write(cabecalho);
+        }
+        destino.force(false);
+    }
+
+    /**
+     * Relê o diário, entregando apenas os registros com sequência maior que
+     * a_partir_de (segmentos inteiros abaixo disso nem são lidos). Um registro
+     * final incompleto ou com CRC inválido (gravação interrompida por queda) é
+     * descartado e o último segmento é truncado nesse ponto. Precisa ser
+     * chamado uma vez antes de qualquer registro novo.
+     */
+    public void reproduzir(long a_partir_de, Receptor receptor) throws IOException {
+        trava.lock();
+        try {
+            List<Long> bases = listar_bases();
+            long sequencia = base_atual;
+            for (int i = 0; i < bases.size(); i++) {
+                boolean ultimo = i == bases.size() - 1;
+                if (!ultimo && bases.get(i + 1) <= a_partir_de) {
+                    continue;
+                }
+                FileChannel segmento = ultimo ? canal
+                        : FileChannel.open(caminho_segmento(bases.get(i)), StandardOpenOption.READ);
+                try {
+                    sequencia = reproduzir_segmento(segmento, bases.get(i), ultimo, a_partir_de, receptor);
+                } finally {
+                    if (!ultimo) {
+                        segmento.close();
+                    }
+                }
+            }
+            sequencia_registrada = sequencia;
+            sequencia_persistida = sequencia;
+            reproduzido = true;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private long reproduzir_segmento(FileChannel segmento, long base, boolean ultimo, long a_partir_de,
+            Receptor receptor) throws IOException {
+        long tamanho = segmento.size();
+        if (tamanho < TAMANHO_CABECALHO) {
+            if (!ultimo) {
+                throw new IOException("Segmento do diário corrompido: " + caminho_segmento(base));
+            }
+            escrever_cabecalho(segmento, base);
+            return base;
+        }
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+        ler_completo(segmento, cabecalho, 0);
+        if (cabecalho.getInt(0) != MAGIA_SEGMENTO || cabecalho.getLong(4) != base) {
+            throw new IOException("Cabeçalho inválido no segmento " + caminho_segmento(base));
+        }
+        long sequencia = base;
+        long posicao = TAMANHO_CABECALHO;
+        ByteBuffer tamanho_lido = ByteBuffer.allocate(4);
+        while (posicao + 4 <= tamanho) {
+            tamanho_lido.clear();
+            ler_completo(segmento, tamanho_lido, posicao);
+            int tamanho_registro = tamanho_lido.getInt(0);
+            if (tamanho_registro <= 0 || tamanho_registro > TAMANHO_MAXIMO_REGISTRO
+                    || posicao + 4 + tamanho_registro + 4 > tamanho) {
+                break;
+            }
+            ByteBuffer registro = ByteBuffer.allocate(tamanho_registro + 4);
+            ler_completo(segmento, registro, posicao + 4);
+            crc.reset();
+            crc.update(registro.array(), 0, tamanho_registro);
+            if ((int) crc.getValue() != registro.getInt(tamanho_registro)) {
+                break;
+            }
+            sequencia++;
+            if (sequencia > a_partir_de) {
+                registro.position(0).limit(tamanho_registro);
+                decodificar(sequencia, registro, receptor);
+            }
+            posicao += 4 + tamanho_registro + 4;
+        }
+        if (posicao < tamanho) {
+            if (!ultimo) {
+                throw new IOException("Segmento do diário corrompido: " + caminho_segmento(base));
+            }
+            segmento.truncate(posicao);
+        }
+        if (ultimo) {
+            segmento.position(posicao);
+        }
+        return sequencia;
+    }
+
+    private static void ler_completo(FileChannel origem, ByteBuffer destino, long posicao) throws IOException {
+        while (destino.hasRemaining()) {
+            int lidos = origem.read(destino, posicao + destino.position());
+            if (lidos < 0) {
+                throw new IOException("Fim inesperado do diário");
+            }
+        }
+    }
+
+    private static void decodificar(long sequencia, ByteBuffer registro, Receptor receptor) {
+        byte tipo_registro = registro.get();
+        if (tipo_registro == REGISTRO_CONTA_CRIADA) {
+            int numero = registro.getInt();
+            byte modalidade = registro.get();
+            long limite_centavos = registro.getLong();
+            String nome = ler_texto(registro);
+            String cpf = ler_texto(registro);
+            receptor.conta_criada(sequencia, numero, modalidade, limite_centavos, nome, cpf);
+        } else if (tipo_registro == REGISTRO_MOVIMENTACAO) {
+            int numero = registro.getInt();
+            long epoch_nanos = registro.getLong();
+            char tipo = (char) registro.get();
+            long valor_centavos = registro.getLong();
+            byte codigo = registro.get();
+            int argumento = registro.getInt();
+            receptor.movimentacao(sequencia, numero, epoch_nanos, tipo, valor_centavos, codigo, argumento);
+        } else if (tipo_registro == REGISTRO_TRANSFERENCIA) {
+            int numero_origem = registro.getInt();
+            int numero_destino = registro.getInt();
+            long epoch_nanos = registro.getLong();
+            long valor_centavos = registro.getLong();
+            receptor.transferencia(sequencia, numero_origem, numero_destino, epoch_nanos, valor_centavos);
+        }
+    }
+
+    public void registrar_conta_criada(int numero, byte modalidade, long limite_centavos, String nome, String cpf) {
+        byte[] nome_bytes = codificar_texto(nome);
+        byte[] cpf_bytes = codificar_texto(cpf);
+        trava.lock();
+        try {
+            int inicio = iniciar_registro(1 + 4 + 1 + 8 + 2 + nome_bytes.length + 2 + cpf_bytes.length);
+            pendente.put(REGISTRO_CONTA_CRIADA).putInt(numero).put(modalidade).putLong(limite_centavos);
+            escrever_texto(nome_bytes);
+            escrever_texto(cpf_bytes);
+            concluir_registro(inicio);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** codigo e argumento identificam a descrição da movimentação (ver CodigoMovimentacao). */
+    public void registrar_movimentacao(int numero, long epoch_nanos, char tipo, long valor_centavos,
+            byte codigo, int argumento) {
+        trava.lock();
+        try {
+            int inicio = iniciar_registro(1 + 4 + 8 + 1 + 8 + 1 + 4);
+            pendente.put(REGISTRO_MOVIMENTACAO).putInt(numero).putLong(epoch_nanos)
+                    .put((byte) tipo).putLong(valor_centavos).put(codigo).putInt(argumento);
+            concluir_registro(inicio);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** As duas pernas de uma transferência (débito na origem, crédito no destino) num só registro. */
+    public void registrar_transferencia(int numero_origem, int numero_destino, long epoch_nanos,
+            long valor_centavos) {
+        trava.lock();
+        try {
+            int inicio = iniciar_registro(1 + 4 + 4 + 8 + 8);
+            pendente.put(REGISTRO_TRANSFERENCIA).putInt(numero_origem).putInt(numero_destino)
+                    .putLong(epoch_nanos).putLong(valor_centavos);
+            concluir_registro(inicio);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private int iniciar_registro(int tamanho_conteudo) {
+        if (fechado) {
+            throw new IllegalStateException("Diário fechado");
+        }
+        verificar_disponivel();
+        if (!reproduzido) {
+            throw new IllegalStateException("O diário precisa ser reproduzido antes de receber registros");
+        }
+        int necessario = 4 + tamanho_conteudo + 4;
+        if (pendente.remaining() < necessario) {
+            ByteBuffer maior = ByteBuffer.allocate(Math.max(pendente.capacity() * 2, pendente.position() + necessario));
+            pendente.flip();
+            maior.put(pendente);
+            pendente = maior;
+        }
+        int inicio = pendente.position();
+        pendente.putInt(tamanho_conteudo);
+        return inicio;
+    }
+
+    private void concluir_registro(int inicio) {
+        int tamanho_conteudo = pendente.getInt(inicio);
+        crc.reset();
+        crc.update(pendente.array(), inicio + 4, tamanho_conteudo);
+        pendente.putInt((int) crc.getValue());
+        sequencia_registrada++;
+        ha_dados.signal();
+    }
+
+    // null é gravado como texto vazio; o tamanho vai num short, então texto maior é recusado
+    private static byte[] codificar_texto(String texto) {
+        byte[] bytes = texto == null ? new byte[0] : texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > TAMANHO_MAXIMO_TEXTO) {
+            throw new IllegalArgumentException("Texto com mais de " + TAMANHO_MAXIMO_TEXTO + " bytes");
+        }
+        return bytes;
+    }
+
+    private void escrever_texto(byte[] bytes) {
+        pendente.putShort((short) bytes.length);
+        pendente.put(bytes);
+    }
+
+    private static String ler_texto(ByteBuffer registro) {
+        int tamanho = registro.getShort() & 0xFFFF;
+        byte[] bytes = new byte[tamanho];
+        registro.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Bloqueia até que todos os registros feitos antes desta chamada (por
+     * qualquer thread) estejam gravados e sincronizados com o disco.
+     */
+    public void aguardar_persistencia() {
+        trava.lock();
+        try {
+            long alvo = sequencia_registrada;
+            while (sequencia_persistida < alvo) {
+                if (falha != null) {
+                    throw new UncheckedIOException("Falha ao gravar o diário", falha);
+                }
+                persistido.awaitUninterruptibly();
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Lança UncheckedIOException se a thread escritora já falhou: a partir daí
+     * nenhum registro novo é aceito, e quem vai mudar uma conta pode consultar
+     * isto antes de mudá-la.
+     */
+    public void verificar_disponivel() {
+        IOException erro = falha;
+        if (erro != null) {
+            throw new UncheckedIOException("Falha ao gravar o diário", erro);
+        }
+    }
+
+    /** Sequência do último registro aceito (ainda que não persistido). */
+    public long sequencia_registrada() {
+        trava.lock();
+        try {
+            return sequencia_registrada;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Fecha o segmento corrente e passa a gravar num novo. Todo registro com
+     * sequência menor ou igual ao valor retornado fica em segmentos anteriores,
+     * e todo registro posterior a esta chamada fica no novo segmento.
+     */
+    public long rotacionar() {
+        trava.lock();
+        try {
+            while (rotacao_solicitada) {
+                if (falha != null) {
+                    throw new UncheckedIOException("Falha ao rotacionar o diário", falha);
+                }
+                persistido.awaitUninterruptibly();
+            }
+            if (sequencia_registrada == base_atual) {
+                return base_atual;
+            }
+            long base = sequencia_registrada;
+            rotacao_solicitada = true;
+            rotacao_deslocamento = pendente.position();
+            rotacao_base = base;
+            ha_dados.signal();
+            while (rotacao_solicitada) {
+                if (falha != null) {
+                    throw new UncheckedIOException("Falha ao rotacionar o diário", falha);
+                }
+                persistido.awaitUninterruptibly();
+            }
+            return base;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** Apaga os segmentos cujos registros têm todos sequência menor ou igual a corte. */
+    public void descartar_segmentos_anteriores(long corte) throws IOException {
+        List<Long> bases = listar_bases();
+        for (int i = 0; i + 1 < bases.size(); i++) {
+            if (bases.get(i + 1) <= corte) {
+                Files.deleteIfExists(caminho_segmento(bases.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Move para a subpasta PASTA_ARQUIVO os segmentos cujos registros têm todos
+     * sequência menor ou igual a corte: saem da recuperação, mas continuam no disco.
+     */
+    public void arquivar_segmentos_anteriores(long corte) throws IOException {
+        Path arquivo = diretorio.resolve(PASTA_ARQUIVO);
+        Files.createDirectories(arquivo);
+        List<Long> bases = listar_bases();
+        for (int i = 0; i + 1 < bases.size(); i++) {
+            if (bases.get(i + 1) <= corte) {
+                Path segmento = caminho_segmento(bases.get(i));
+                Files.move(segmento, arquivo.resolve(segmento.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private void laco_escritor() {
+        while (true) {
+            long alvo;
+            ByteBuffer lote;
+            boolean rotacionar;
+            int deslocamento;
+            long nova_base;
+            trava.lock();
+            try {
+                while (pendente.position() == 0 && !rotacao_solicitada && !fechado) {
+                    ha_dados.awaitUninterruptibly();
+                }
+                if (pendente.position() == 0 && !rotacao_solicitada) {
+                    return;
+                }
+                lote = pendente;
+                pendente = em_gravacao;
+                em_gravacao = lote;
+                alvo = sequencia_registrada;
+                rotacionar = rotacao_solicitada;
+                deslocamento = rotacionar ? rotacao_deslocamento : lote.position();
+                nova_base = rotacao_base;
+            } finally {
+                trava.unlock();
+            }
+            IOException erro = null;
+            try {
+                int fim = lote.position();
+                lote.flip();
+                lote.limit(deslocamento);
+                gravar(lote);
+                if (rotacionar) {
+                    FileChannel novo = criar_segmento(nova_base);
+                    canal.close();
+                    canal = novo;
+                    lote.limit(fim);
+                    gravar(lote);
+                }
+            } catch (IOException e) {
+                erro = e;
+            } finally {
+                lote.clear();
+            }
+            trava.lock();
+            try {
+                if (erro != null) {
+                    falha = erro;
+                } else {
+                    sequencia_persistida = alvo;
+                    if (rotacionar) {
+                        base_atual = nova_base;
+                        rotacao_solicitada = false;
+                    }
+                }
+                persistido.signalAll();
+            } finally {
+                trava.unlock();
+            }
+            if (erro != null) {
+                return;
+            }
+        }
+    }
+
+    private void gravar(ByteBuffer dados) throws IOException {
+        if (!dados.hasRemaining()) {
+            return;
+        }
+        while (dados.hasRemaining()) {
+            canal.write(dados);
+        }
+        canal.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        trava.lock();
+        try {
+            fechado = true;
+            ha_dados.signal();
+        } finally {
+            trava.unlock();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+    }
+}
@@ -0,0 +1,158 @@
+package br.univali.cc.prog3.banco.persistencia;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Extrato fora do heap, num arquivo mapeado em memória. O custo no heap é só
+ * o índice dos blocos da conta (um int a cada ENTRADAS_POR_BLOCO
+ * movimentações); o sistema operacional pagina o resto conforme o uso.
+ *
+ * Todas as contas de uma fábrica dividem um único arquivo, mapeado em
+ * segmentos de tamanho fixo e ampliado acrescentando segmentos: o número de
+ * mapeamentos acompanha o volume total de movimentações, e não o número de
+ * contas (o limite de mapeamentos por processo é de algumas dezenas de
+ * milhares). Cada conta recebe blocos de ENTRADAS_POR_BLOCO movimentações, e
+ * dentro do bloco cada campo ocupa uma faixa contígua (instante em
+ * epoch-nanos, valor em centavos, argumento int, tipo e código de um byte).
+ *
+ * O arquivo é área de trabalho, não persistência: é recriado vazio a cada
+ * fábrica. A durabilidade continua sendo papel do DiarioMovimentacoes.
+ */
+public class ExtratoMapeado implements ArmazenamentoExtrato {
+    private static final int ENTRADAS_POR_BLOCO = 32;
+    private static final int DESLOCAMENTO_VALORES = ENTRADAS_POR_BLOCO * 8;
+    private static final int DESLOCAMENTO_ARGUMENTOS = DESLOCAMENTO_VALORES + ENTRADAS_POR_BLOCO * 8;
+    private static final int DESLOCAMENTO_TIPOS = DESLOCAMENTO_ARGUMENTOS + ENTRADAS_POR_BLOCO * 4;
+    private static final int DESLOCAMENTO_CODIGOS = DESLOCAMENTO_TIPOS + ENTRADAS_POR_BLOCO;
+    private static final int TAMANHO_BLOCO = DESLOCAMENTO_CODIGOS + ENTRADAS_POR_BLOCO;
+    private static final int BLOCOS_POR_SEGMENTO = (64 << 20) / TAMANHO_BLOCO;
+    private static final long TAMANHO_SEGMENTO = (long) BLOCOS_POR_SEGMENTO * TAMANHO_BLOCO;
+
+    private final Regiao regiao;
+    // blocos da conta na região, em ordem; a movimentação i fica no bloco i / ENTRADAS_POR_BLOCO
+    private int[] blocos = new int[0];
+    private int tamanho;
+
+    private ExtratoMapeado(Regiao regiao) {
+        this.regiao = regiao;
+    }
+
+    /**
+     * Fábrica para Banco.definir_armazenamento_extrato: todas as contas
+     * criadas por ela dividem o arquivo extrato.map do diretório.
+     */
+    public static IntFunction<ArmazenamentoExtrato> fabrica(Path diretorio) throws IOException {
+        Regiao regiao = new Regiao(diretorio.resolve("extrato.map"));
+        return numero -> new ExtratoMapeado(regiao);
+    }
+
+    @Override
+    public void adicionar(long epoch_nanos, char tipo, long valor_centavos, byte codigo, int argumento) {
+        int indice_bloco = tamanho / ENTRADAS_POR_BLOCO;
+        if (tamanho % ENTRADAS_POR_BLOCO == 0) {
+            if (indice_bloco == blocos.length) {
+                blocos = Arrays.copyOf(blocos, Math.max(4, blocos.length * 2));
+            }
+            blocos[indice_bloco] = regiao.alocar_bloco();
+        }
+        MappedByteBuffer segmento = regiao.segmento(blocos[indice_bloco]);
+        segmento.putLong(posicao(tamanho, 0, 8), epoch_nanos);
+        segmento.putLong(posicao(tamanho, DESLOCAMENTO_VALORES, 8), valor_centavos);
+        segmento.putInt(posicao(tamanho, DESLOCAMENTO_ARGUMENTOS, 4), argumento);
+        segmento.put(posicao(tamanho, DESLOCAMENTO_TIPOS, 1), (byte) tipo);
+        segmento.put(posicao(tamanho, DESLOCAMENTO_CODIGOS, 1), codigo);
+        tamanho++;
+    }
+
+    @Override
+    public int tamanho() {
+        return tamanho;
+    }
+
+    @Override
+    public long obter_epoch_nanos(int indice) {
+        return segmento(indice).getLong(posicao(indice, 0, 8));
+    }
+
+    @Override
+    public char obter_tipo(int indice) {
+        return (char) segmento(indice).get(posicao(indice, DESLOCAMENTO_TIPOS, 1));
+    }
+
+    @Override
+    public long obter_valor_centavos(int indice) {
+        return segmento(indice).getLong(posicao(indice, DESLOCAMENTO_VALORES, 8));
+    }
+
+    @Override
+    public byte obter_codigo(int indice) {
+        return segmento(indice).get(posicao(indice, DESLOCAMENTO_CODIGOS, 1));
+    }
+
+    @Override
+    public int obter_argumento(int indice) {
+        return segmento(indice).getInt(posicao(indice, DESLOCAMENTO_ARGUMENTOS, 4));
+    }
+
+    private MappedByteBuffer segmento(int indice) {
+        if (indice < 0 || indice >= tamanho) {
+            throw new IndexOutOfBoundsException("Índice: " + indice + ", tamanho: " + tamanho);
+        }
+        return regiao.segmento(blocos[indice / ENTRADAS_POR_BLOCO]);
+    }
+
+    // posição, dentro do segmento, do campo da movimentação indice que começa em deslocamento no bloco
+    private int posicao(int indice, int deslocamento, int largura) {
+        int bloco = blocos[indice / ENTRADAS_POR_BLOCO];
+        return (bloco % BLOCOS_POR_SEGMENTO) * TAMANHO_BLOCO + deslocamento + (indice % ENTRADAS_POR_BLOCO) * largura;
+    }
+
+    /** O arquivo compartilhado: entrega blocos em ordem e mapeia um segmento novo quando o atual acaba. */
+    private static final class Regiao {
+        private final Path arquivo;
+        // só cresce; quem lê um bloco já alocado sempre encontra o segmento dele
+        private volatile MappedByteBuffer[] segmentos = new MappedByteBuffer[0];
+        private int blocos_alocados;
+
+        Regiao(Path arquivo) throws IOException {
+            this.arquivo = arquivo;
+            Files.createDirectories(arquivo.getParent());
+            Files.deleteIfExists(arquivo);
+        }
+
+        synchronized int alocar_bloco() {
+            int bloco = blocos_alocados;
+            int indice_segmento = bloco / BLOCOS_POR_SEGMENTO;
+            if (indice_segmento == segmentos.length) {
+                MappedByteBuffer[] ampliado = Arrays.copyOf(segmentos, indice_segmento + 1);
+                ampliado[indice_segmento] = mapear(indice_segmento);
+                segmentos = ampliado;
+            }
+            blocos_alocados++;
+            return bloco;
+        }
+
+        MappedByteBuffer segmento(int bloco) {
+            return segmentos[bloco / BLOCOS_POR_SEGMENTO];
+        }
+
+        // o mapeamento continua válido depois de fechar o canal, então nenhum
+        // descritor de arquivo fica aberto
+        private MappedByteBuffer mapear(int indice_segmento) {
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return canal.map(FileChannel.MapMode.READ_WRITE, indice_segmento * TAMANHO_SEGMENTO, TAMANHO_SEGMENTO);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ampliar o extrato mapeado", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package br.univali.cc.prog3.banco.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Fotografia binária de todas as contas do banco, usada junto com o
+ * DiarioMovimentacoes para que a recuperação só precise reproduzir o que foi
+ * registrado depois dela.
+ *
+ * Cada conta leva o saldo e só as últimas movimentações do extrato, então o
+ * tamanho do instantâneo, e o custo de relê-lo, não cresce com o histórico.
+ *
+ * Formato: cabeçalho [magia int][versão int][corte long][numero_conta_sequencial int],
+ * depois cada conta precedida do marcador 1 e o marcador 0 no fim, seguido do crc32
+ * de tudo o que veio antes. O arquivo é gravado ao lado e só substitui o anterior
+ * depois de sincronizado, então uma queda no meio nunca deixa um instantâneo parcial.
+ */
+public class InstantaneoBanco {
+    public static final String NOME_ARQUIVO = "instantaneo.bin";
+
+    private static final int MAGIA = 0x494E5354;
+    private static final int VERSAO = 3;
+
+    /** Recebe o conteúdo de um instantâneo na ordem em que foi gravado. */
+    public interface Receptor {
+        void cabecalho(long corte, int numero_conta_sequencial);
+
+        /**
+         * ultima_sequencia é a sequência do diário até a qual as movimentações da
+         * conta já estão no instantâneo; registros dela com sequência menor ou igual
+         * devem ser ignorados na reprodução do diário. saldo_centavos é o saldo
+         * até essa sequência; competencia é a do último rendimento (aaaamm), ou 0.
+         */
+        void conta(int numero, byte modalidade, long limite_centavos, String nome, String cpf,
+                long ultima_sequencia, long saldo_centavos, int competencia);
+
+        /** Movimentações mais recentes da conta, já contadas no saldo recebido em conta(). */
+        void movimentacao(int numero, long epoch_nanos, char tipo, long valor_centavos, byte codigo, int argumento);
+    }
+
+    public static class Gravador implements Closeable {
+        private final Path destino;
+        private final Path temporario;
+        private final FileOutputStream arquivo;
+        private final CheckedOutputStream verificado;
+        private final DataOutputStream saida;
+        private boolean concluido;
+
+        private Gravador(Path destino, long corte, int numero_conta_sequencial) throws IOException {
+            this.destino = destino;
+            this.temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+            this.arquivo = new FileOutputStream(temporario.toFile());
+            this.verificado = new CheckedOutputStream(new BufferedOutputStream(arquivo, 64 * 1024), new CRC32());
+            this.saida = new DataOutputStream(verificado);
+            saida.writeInt(MAGIA);
+            saida.writeInt(VERSAO);
+            saida.writeLong(corte);
+            saida.writeInt(numero_conta_sequencial);
+        }
+
+        public void conta(int numero, byte modalidade, long limite_centavos, String nome, String cpf,
+                long ultima_sequencia, long saldo_centavos, int competencia, int total_movimentacoes)
+                throws IOException {
+            saida.writeByte(1);
+            saida.writeInt(numero);
+            saida.writeByte(modalidade);
+            saida.writeLong(limite_centavos);
+            saida.writeUTF(nome == null ? "" : nome);
+            saida.writeUTF(cpf);
+            saida.writeLong(ultima_sequencia);
+            saida.writeLong(saldo_centavos);
+            saida.writeInt(competencia);
+            saida.writeInt(total_movimentacoes);
+        }
+
+        public void movimentacao(long epoch_nanos, char tipo, long valor_centavos, byte codigo, int argumento)
+                throws IOException {
+            saida.writeLong(epoch_nanos);
+            saida.writeByte(tipo);
+            saida.writeLong(valor_centavos);
+            saida.writeByte(codigo);
+            saida.writeInt(argumento);
+        }
+
+        /** Finaliza o arquivo e o coloca no lugar do instantâneo anterior. */
+        public void concluir() throws IOException {
+            saida.writeByte(0);
+            saida.flush();
+            long crc = verificado.getChecksum().getValue();
+            saida.writeInt((int) crc);
+            saida.flush();
+            arquivo.getFD().sync();
+            saida.close();
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            concluido = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!concluido) {
+                saida.close();
+                Files.deleteIfExists(temporario);
+            }
+        }
+    }
+
+    public static Gravador gravar(Path arquivo, long corte, int numero_conta_sequencial) throws IOException {
+        return new Gravador(arquivo, corte, numero_conta_sequencial);
+    }
+
+    /** Lê o instantâneo, se existir. Retorna false quando não há instantâneo. */
+    public static boolean ler(Path arquivo, Receptor receptor) throws IOException {
+        if (!Files.exists(arquivo)) {
+            return false;
+        }
+        CheckedInputStream verificado = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(arquivo), 64 * 1024), new CRC32());
+        try (DataInputStream entrada = new DataInputStream(verificado)) {
+            if (entrada.readInt() != MAGIA || entrada.readInt() != VERSAO) {
+                throw new IOException("Instantâneo em formato desconhecido: " + arquivo);
+            }
+            receptor.cabecalho(entrada.readLong(), entrada.readInt());
+            while (entrada.readByte() == 1) {
+                int numero = entrada.readInt();
+                byte modalidade = entrada.readByte();
+                long limite_centavos = entrada.readLong();
+                String nome = entrada.readUTF();
+                String cpf = entrada.readUTF();
+                long ultima_sequencia = entrada.readLong();
+                long saldo_centavos = entrada.readLong();
+                int competencia = entrada.readInt();
+                int total_movimentacoes = entrada.readInt();
+                receptor.conta(numero, modalidade, limite_centavos, nome, cpf, ultima_sequencia, saldo_centavos,
+                        competencia);
+                for (int i = 0; i < total_movimentacoes; i++) {
+                    long epoch_nanos = entrada.readLong();
+                    char tipo = (char) entrada.readByte();
+                    long valor_centavos = entrada.readLong();
+                    byte codigo = entrada.readByte();
+                    receptor.movimentacao(numero, epoch_nanos, tipo, valor_centavos, codigo, entrada.readInt());
+                }
+            }
+            long calculado = verificado.getChecksum().getValue();
+            if (entrada.readInt() != (int) calculado) {
+                throw new IOException("Instantâneo corrompido (crc inválido): " + arquivo);
+            }
+        }
+        return true;
+    }
+}
@@ -1,83 +1,79 @@
 package br.univali.cc.prog3.banco.servico;
 
 import br.univali.cc.prog3.banco.dominio.Banco;
-import br.univali.cc.prog3.banco.dominio.ContaCorrente;
+import br.univali.cc.prog3.banco.dominio.Cliente;
+import br.univali.cc.prog3.banco.dominio.ContaBancaria;
+import br.univali.cc.prog3.banco.dominio.ResultadoOperacao;
 import br.univali.cc.prog3.banco.dto.CriarContaRequest;
 import br.univali.cc.prog3.banco.dto.OperacaoRequest;
 import br.univali.cc.prog3.banco.dto.TransferenciaRequest;
-import org.springframework.stereotype.Service;
+import br.univali.cc.prog3.banco.excecao.ValorNegativoException;
+import java.time.Duration;
+import java.util.function.Supplier;
 
-import java.util.HashMap;
-import java.util.Map;
-
-@Service
+/**
+ * Fachada do Banco para a camada REST. O Banco já é seguro para várias
+ * threads e é o único diretório de contas: cada operação faz uma só busca,
+ * dentro do próprio Banco, e o serviço não guarda estado de contas.
+ * Exposto por HTTP em ServidorHttp.
+ */
 public class BancoServico {
     private final Banco banco;
-    private final Map<Integer, ContaCorrente> contasMap;
+    private final CacheIdempotencia<ResultadoOperacao> operacoesRealizadas =
+            new CacheIdempotencia<>(1_000_000, Duration.ofHours(24));
 
     public BancoServico() {
-        this.banco = new Banco("Banco do Brasil API", 1);
-        this.contasMap = new HashMap<>();
+        this(new Banco("Banco do Brasil API", "Feito para você", 1));
+    }
+
+    public BancoServico(Banco banco) {
+        this.banco = banco;
     }
 
-    public int criarConta(CriarContaRequest request) {
+    public int criarConta(CriarContaRequest request) throws ValorNegativoException {
+        Cliente titular = new Cliente(request.getNomeTitular(), request.getCpfTitular());
         if (request.isEspecial()) {
-            banco.criarConta(request.getSaldoInicial(), request.getLimite());
-        } else {
-            banco.criarConta(request.getSaldoInicial());
+            return banco.abrir_conta(request.getSaldoInicial(), request.getLimite(), titular);
         }
-        
-        int numeroConta = banco.getNumeroConta();
-        ContaCorrente conta = banco.localizarConta(numeroConta);
-        if (conta != null) {
-            contasMap.put(numeroConta, conta);
-        }
-        
-        return numeroConta;
+        return banco.abrir_conta(request.getSaldoInicial(), titular);
     }
 
-    public boolean depositar(OperacaoRequest request) {
-        if (!contasMap.containsKey(request.getNumero())) {
-            return false;
-        }
-        
-        banco.depositar(request.getNumero(), request.getValor());
-        return true;
+    public ResultadoOperacao depositar(OperacaoRequest request) {
+        return executarUmaVez(request.getChaveIdempotencia(),
+                "D|" + request.getNumero() + "|" + request.getValor(),
+                () -> banco.tentar_depositar(request.getNumero(), request.getValor()));
     }
 
-    public boolean sacar(OperacaoRequest request) {
-        if (!contasMap.containsKey(request.getNumero())) {
-            return false;
-        }
-        
-        banco.sacar(request.getNumero(), request.getValor());
-        return true;
+    public ResultadoOperacao sacar(OperacaoRequest request) {
+        return executarUmaVez(request.getChaveIdempotencia(),
+                "S|" + request.getNumero() + "|" + request.getValor(),
+                () -> banco.tentar_sacar(request.getNumero(), request.getValor()));
+    }
+
+    public ResultadoOperacao transferir(TransferenciaRequest request) {
+        return executarUmaVez(request.getChaveIdempotencia(),
+                "T|" + request.getNumeroOrigem() + "|" + request.getNumeroDestino() + "|" + request.getValor(),
+                () -> banco.tentar_transferir(request.getNumeroOrigem(), request.getNumeroDestino(),
+                        request.getValor()));
     }
 
-    public boolean transferir(TransferenciaRequest request) {
-        if (!contasMap.containsKey(request.getNumeroOrigem()) || 
-            !contasMap.containsKey(request.getNumeroDestino())) {
-            return false;
+    // sem chave o pedido é executado normalmente; com chave, a repetição recebe o mesmo resultado
+    private ResultadoOperacao executarUmaVez(String chave, String assinatura, Supplier<ResultadoOperacao> operacao) {
+        if (chave == null || chave.isEmpty()) {
+            return operacao.get();
         }
-        
-        banco.transferir(request.getNumeroOrigem(), request.getNumeroDestino(), request.getValor());
-        return true;
+        return operacoesRealizadas.executar(chave, assinatura, operacao);
     }
 
+    /** null se a conta não existir. */
     public String emitirExtrato(int numeroConta) {
-        if (!contasMap.containsKey(numeroConta)) {
-            return "Conta não encontrada";
-        }
-        
-        return banco.emitirExtrato(numeroConta);
+        ContaBancaria conta = banco.obter_conta(numeroConta);
+        return conta == null ? null : conta.emitir_extrato();
     }
 
-    public double consultarSaldo(int numeroConta) {
-        if (!contasMap.containsKey(numeroConta)) {
-            return -1;
-        }
-        
-        ContaCorrente conta = contasMap.get(numeroConta);
-        return conta.getSaldo();
+    /** null se a conta não existir (conta com limite pode ter saldo negativo). */
+    public Double consultarSaldo(int numeroConta) {
+        ContaBancaria conta = banco.obter_conta(numeroConta);
+        return conta == null ? null : conta.obter_saldo();
     }
-}
\ No newline at end of file
+}
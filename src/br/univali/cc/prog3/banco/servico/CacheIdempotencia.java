@@ -0,0 +1,139 @@
+package br.univali.cc.prog3.banco.servico;
+
+import br.univali.cc.prog3.banco.excecao.ChaveIdempotenciaReutilizadaException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Guarda o resultado de cada operação pela chave de idempotência enviada pelo
+ * cliente, para que uma nova tentativa com a mesma chave receba o resultado
+ * original sem executar a operação de novo.
+ *
+ * Pedidos simultâneos com a mesma chave esperam o primeiro terminar. Falhas
+ * (qualquer Throwable) não ficam guardadas, então a nova tentativa executa de novo. As
+ * entradas expiram depois da validade, e acima da capacidade as mais antigas
+ * saem primeiro; a capacidade deve cobrir o volume de uma janela de validade,
+ * senão uma nova tentativa tardia pode não encontrar a sua entrada. Uma entrada
+ * cuja operação ainda está em execução nunca é descartada: o descarte para
+ * nela até que termine.
+ */
+public class CacheIdempotencia<T> {
+    private final ConcurrentHashMap<String, Entrada<T>> entradas = new ConcurrentHashMap<>();
+    // ordem de inclusão, que com validade fixa é também a ordem de expiração
+    private final ConcurrentLinkedQueue<Entrada<T>> fila = new ConcurrentLinkedQueue<>();
+    // tamanho da fila, que inclui entradas que já saíram do mapa (falhas, expiradas)
+    private final AtomicInteger naFila = new AtomicInteger();
+    // só quem a detém retira da fila, então a cabeça lida com peek é a que poll retira
+    private final ReentrantLock descarte = new ReentrantLock();
+    private final int capacidadeMaxima;
+    private final long validadeNanos;
+
+    public CacheIdempotencia(int capacidadeMaxima, Duration validade) {
+        if (capacidadeMaxima <= 0) {
+            throw new IllegalArgumentException("Capacidade inválida: " + capacidadeMaxima);
+        }
+        this.capacidadeMaxima = capacidadeMaxima;
+        this.validadeNanos = validade.toNanos();
+    }
+
+    /**
+     * Executa a operação na primeira vez que a chave aparece e devolve o
+     * resultado guardado nas seguintes. A assinatura descreve o pedido (tipo,
+     * contas, valor): reutilizar a chave com outra assinatura é erro do
+     * cliente e lança ChaveIdempotenciaReutilizadaException.
+     */
+    public T executar(String chave, String assinatura, Supplier<T> operacao) {
+        while (true) {
+            long agora = System.nanoTime();
+            Entrada<T> nova = new Entrada<>(chave, assinatura, agora);
+            Entrada<T> existente = entradas.putIfAbsent(chave, nova);
+            if (existente == null) {
+                fila.add(nova);
+                naFila.incrementAndGet();
+                descartarExcedentes(agora);
+                return executarPrimeira(nova, operacao);
+            }
+            if (existente.expirada(agora, validadeNanos)) {
+                entradas.remove(chave, existente);
+                continue;
+            }
+            if (!existente.assinatura.equals(assinatura)) {
+                throw new ChaveIdempotenciaReutilizadaException(
+                        "Chave de idempotência já usada em outra operação: " + chave);
+            }
+            try {
+                return existente.resultado.join();
+            } catch (CompletionException e) {
+                // a primeira tentativa falhou e a entrada já saiu do mapa: tenta de novo
+            }
+        }
+    }
+
+    private T executarPrimeira(Entrada<T> entrada, Supplier<T> operacao) {
+        T resultado;
+        try {
+            resultado = operacao.get();
+        } catch (Throwable e) {
+            // qualquer falha, inclusive Error: quem espera a entrada é liberado e ela
+            // sai só do mapa; a fila a descarta quando ela chegar à cabeça
+            entradas.remove(entrada.chave, entrada);
+            entrada.resultado.completeExceptionally(e);
+            throw e;
+        }
+        entrada.resultado.complete(resultado);
+        return resultado;
+    }
+
+    private void descartarExcedentes(long agora) {
+        // um descarte por vez; quem chega enquanto outro descarta não precisa esperar
+        if (!descarte.tryLock()) {
+            return;
+        }
+        try {
+            Entrada<T> maisAntiga;
+            while ((maisAntiga = fila.peek()) != null) {
+                // fora do mapa (falhou ou expirou e foi substituída): só sai da fila
+                if (entradas.get(maisAntiga.chave) == maisAntiga) {
+                    if (!maisAntiga.resultado.isDone()) {
+                        break;
+                    }
+                    if (!maisAntiga.expirada(agora, validadeNanos) && naFila.get() <= capacidadeMaxima) {
+                        break;
+                    }
+                    entradas.remove(maisAntiga.chave, maisAntiga);
+                }
+                fila.poll();
+                naFila.decrementAndGet();
+            }
+        } finally {
+            descarte.unlock();
+        }
+    }
+
+    public int tamanho() {
+        return entradas.size();
+    }
+
+    private static final class Entrada<T> {
+        final String chave;
+        final String assinatura;
+        final long criadaEmNanos;
+        final CompletableFuture<T> resultado = new CompletableFuture<>();
+
+        Entrada(String chave, String assinatura, long criadaEmNanos) {
+            this.chave = chave;
+            this.assinatura = assinatura;
+            this.criadaEmNanos = criadaEmNanos;
+        }
+
+        boolean expirada(long agora, long validadeNanos) {
+            return agora - criadaEmNanos > validadeNanos;
+        }
+    }
+}
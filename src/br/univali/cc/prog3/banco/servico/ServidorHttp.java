@@ -0,0 +1,190 @@
+package br.univali.cc.prog3.banco.servico;
+
+import br.univali.cc.prog3.banco.dominio.ResultadoOperacao;
+import br.univali.cc.prog3.banco.dto.ApiResponse;
+import br.univali.cc.prog3.banco.dto.CodecJson;
+import br.univali.cc.prog3.banco.dto.OperacaoRequest;
+import br.univali.cc.prog3.banco.dto.TransferenciaRequest;
+import br.univali.cc.prog3.banco.excecao.BancoException;
+import br.univali.cc.prog3.banco.excecao.ChaveIdempotenciaReutilizadaException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * API HTTP/JSON do BancoServico sobre o HttpServer do próprio JDK: sem
+ * framework, sem varredura de classpath e com JSON lido e escrito por
+ * CodecJson. Cada pedido é atendido numa thread virtual; conexões
+ * persistentes (keep-alive) são reaproveitadas pelo HttpServer.
+ *
+ *   POST /contas                   CriarContaRequest    → número da conta
+ *   POST /depositos                OperacaoRequest
+ *   POST /saques                   OperacaoRequest
+ *   POST /transferencias           TransferenciaRequest
+ *   GET  /contas/{numero}/saldo
+ *   GET  /contas/{numero}/extrato
+ *
+ * A chave de idempotência pode vir no corpo ou no cabeçalho Idempotency-Key;
+ * reenviá-la com outro pedido é 409. Um caminho conhecido com outro método é
+ * 405, com o método aceito no cabeçalho Allow.
+ */
+public class ServidorHttp implements AutoCloseable {
+    private static final String CABECALHO_IDEMPOTENCIA = "Idempotency-Key";
+    private static final Set<String> RECURSOS_POST = Set.of("contas", "depositos", "saques", "transferencias");
+
+    private final BancoServico servico;
+    private final HttpServer servidor;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ServidorHttp(BancoServico servico, InetSocketAddress endereco) throws IOException {
+        this.servico = servico;
+        this.servidor = HttpServer.create(endereco, 1024);
+        servidor.setExecutor(executor);
+        servidor.createContext("/", this::atender);
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /** Porta efetiva, útil quando o endereço foi criado com a porta 0. */
+    public int obterPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.close();
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        try {
+            rotear(troca);
+        } catch (ChaveIdempotenciaReutilizadaException e) {
+            responder(troca, 409, ApiResponse.erro(e.getMessage()));
+        } catch (IllegalArgumentException | BancoException e) {
+            responder(troca, 400, ApiResponse.erro(e.getMessage()));
+        } catch (RuntimeException e) {
+            responder(troca, 500, ApiResponse.erro("Erro interno"));
+        } finally {
+            troca.close();
+        }
+    }
+
+    private void rotear(HttpExchange troca) throws IOException, BancoException {
+        String metodo = troca.getRequestMethod();
+        String[] partes = troca.getRequestURI().getPath().split("/");
+        // partes[0] é sempre "" porque o caminho começa com '/'
+        if (partes.length == 2 && RECURSOS_POST.contains(partes[1])) {
+            if (!metodo.equals("POST")) {
+                responderMetodoNaoPermitido(troca, "POST");
+                return;
+            }
+            switch (partes[1]) {
+                case "contas":
+                    int numero = servico.criarConta(CodecJson.lerCriarContaRequest(lerCorpo(troca)));
+                    responder(troca, 201, ApiResponse.sucesso(numero));
+                    return;
+                case "depositos":
+                    responderOperacao(troca, servico.depositar(lerOperacao(troca)));
+                    return;
+                case "saques":
+                    responderOperacao(troca, servico.sacar(lerOperacao(troca)));
+                    return;
+                case "transferencias":
+                    TransferenciaRequest transferencia = CodecJson.lerTransferenciaRequest(lerCorpo(troca));
+                    if (transferencia.getChaveIdempotencia() == null) {
+                        transferencia.setChaveIdempotencia(troca.getRequestHeaders().getFirst(CABECALHO_IDEMPOTENCIA));
+                    }
+                    responderOperacao(troca, servico.transferir(transferencia));
+                    return;
+                default:
+                    break;
+            }
+        } else if (partes.length == 4 && partes[1].equals("contas")
+                && (partes[3].equals("saldo") || partes[3].equals("extrato"))) {
+            if (!metodo.equals("GET")) {
+                responderMetodoNaoPermitido(troca, "GET");
+                return;
+            }
+            int numero = lerNumeroConta(partes[2]);
+            Object dados = partes[3].equals("saldo") ? servico.consultarSaldo(numero) : servico.emitirExtrato(numero);
+            if (dados != null) {
+                responder(troca, 200, ApiResponse.sucesso(dados));
+            } else {
+                responder(troca, 404, ApiResponse.erro("Conta não encontrada"));
+            }
+            return;
+        }
+        responder(troca, 404, ApiResponse.erro("Recurso inexistente"));
+    }
+
+    private OperacaoRequest lerOperacao(HttpExchange troca) throws IOException {
+        OperacaoRequest operacao = CodecJson.lerOperacaoRequest(lerCorpo(troca));
+        if (operacao.getChaveIdempotencia() == null) {
+            operacao.setChaveIdempotencia(troca.getRequestHeaders().getFirst(CABECALHO_IDEMPOTENCIA));
+        }
+        return operacao;
+    }
+
+    private static int lerNumeroConta(String texto) {
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número de conta inválido: " + texto);
+        }
+    }
+
+    private static String lerCorpo(HttpExchange troca) throws IOException {
+        return new String(troca.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    // conta inexistente é 404, valor inválido 400, saldo insuficiente ou acima do máximo 422
+    private static void responderOperacao(HttpExchange troca, ResultadoOperacao resultado) throws IOException {
+        switch (resultado) {
+            case SUCESSO:
+                responder(troca, 200, ApiResponse.sucesso(true));
+                break;
+            case CONTA_INEXISTENTE:
+                responder(troca, 404, new ApiResponse<>(false, "Conta não encontrada", false));
+                break;
+            case VALOR_INVALIDO:
+                responder(troca, 400, new ApiResponse<>(false, "Valor inválido", false));
+                break;
+            case SALDO_INSUFICIENTE:
+                responder(troca, 422, new ApiResponse<>(false, "Saldo insuficiente", false));
+                break;
+            default:
+                responder(troca, 422, new ApiResponse<>(false, "Saldo máximo da conta excedido", false));
+                break;
+        }
+    }
+
+    private static void responderMetodoNaoPermitido(HttpExchange troca, String permitido) throws IOException {
+        troca.getResponseHeaders().set("Allow", permitido);
+        responder(troca, 405, ApiResponse.erro("Método não permitido"));
+    }
+
+    private static void responder(HttpExchange troca, int status, ApiResponse<?> resposta) throws IOException {
+        byte[] corpo = CodecJson.escreverResposta(resposta).getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, corpo.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(corpo);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int porta = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ServidorHttp servidor = new ServidorHttp(new BancoServico(), new InetSocketAddress(porta));
+        servidor.iniciar();
+        System.out.println("API do banco ouvindo na porta " + servidor.obterPorta());
+    }
+}
@@ -0,0 +1,28 @@
+package br.univali.cc.prog3.banco.utilitario;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class DataHora {
+    private static final long NANOS_POR_SEGUNDO = 1_000_000_000L;
+
+    // O extrato usa LocalDateTime (sem fuso); a conversão via UTC é só uma
+    // codificação numérica reversível, não uma mudança de fuso.
+    public static long paraEpochNanos(LocalDateTime data_hora) {
+        return data_hora.toEpochSecond(ZoneOffset.UTC) * NANOS_POR_SEGUNDO + data_hora.getNano();
+    }
+
+    /** Equivale a paraEpochNanos(LocalDateTime.now()), sem criar o LocalDateTime. */
+    public static long agoraEpochNanos() {
+        Instant agora = Instant.now();
+        int deslocamento = ZoneId.systemDefault().getRules().getOffset(agora).getTotalSeconds();
+        return (agora.getEpochSecond() + deslocamento) * NANOS_POR_SEGUNDO + agora.getNano();
+    }
+
+    public static LocalDateTime deEpochNanos(long epoch_nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epoch_nanos, NANOS_POR_SEGUNDO),
+                (int) Math.floorMod(epoch_nanos, NANOS_POR_SEGUNDO), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,40 @@
+package br.univali.cc.prog3.banco.utilitario;
+
+public class Dinheiro {
+    /**
+     * Maior valor aceito em centavos (2^53): acima disso um double já não
+     * representa cada centavo, e a soma de alguns valores assim estouraria o long.
+     */
+    public static final long MAXIMO_CENTAVOS = 1L << 53;
+
+    /** Lança IllegalArgumentException para NaN, infinito ou valor acima de MAXIMO_CENTAVOS. */
+    public static long paraCentavos(double reais) {
+        if (!dentroDoIntervalo(reais)) {
+            throw new IllegalArgumentException("Valor fora do intervalo aceito: " + reais);
+        }
+        return Math.round(reais * 100.0);
+    }
+
+    /** Se paraCentavos aceita o valor: nem NaN, nem infinito, nem acima de MAXIMO_CENTAVOS em módulo. */
+    public static boolean dentroDoIntervalo(double reais) {
+        // a comparação também recusa NaN
+        return Math.abs(reais * 100.0) <= MAXIMO_CENTAVOS;
+    }
+
+    /**
+     * Centavos de um valor de operação (depósito, saque, transferência), ou 0
+     * se ele não for válido: não positivo, menor que meio centavo, NaN,
+     * infinito ou acima de MAXIMO_CENTAVOS.
+     */
+    public static long centavosDaOperacao(double reais) {
+        double centavos = reais * 100.0;
+        if (!(centavos > 0 && centavos <= MAXIMO_CENTAVOS)) {
+            return 0;
+        }
+        return Math.round(centavos);
+    }
+
+    public static double paraReais(long centavos) {
+        return centavos / 100.0;
+    }
+}
@@ -0,0 +1,131 @@
+package br.univali.cc.prog3.banco.utilitario;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Formatação compartilhada de datas e valores. Os métodos escrever* são
+ * escritos à mão direto num char[], sem Formatter nem Strings intermediárias,
+ * para quem gera muitas linhas (ex.: o extrato); cada um escreve a partir de
+ * posicao e devolve a posição seguinte ao último caractere.
+ */
+public class Formatacao {
+    /** Padrão de data/hora do extrato, compilado uma única vez (DateTimeFormatter é thread-safe). */
+    public static final DateTimeFormatter DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private static final long NANOS_POR_SEGUNDO = 1_000_000_000L;
+    private static final int SEGUNDOS_POR_DIA = 86_400;
+
+    // o mesmo separador que String.format("%.2f") usaria
+    private static final char SEPARADOR_DECIMAL =
+            DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+    /** Tamanho máximo escrito por escreverValor. */
+    public static final int TAMANHO_MAXIMO_VALOR = 1 + 18 + 1 + 2;
+    /** Tamanho escrito por escreverDataHora. */
+    public static final int TAMANHO_DATA_HORA = 19;
+
+    /** Equivale a String.format("%.2f", centavos / 100.0). */
+    public static String formatarValor(long centavos) {
+        char[] destino = new char[TAMANHO_MAXIMO_VALOR];
+        return new String(destino, 0, escreverValor(destino, 0, centavos));
+    }
+
+    /**
+     * Equivale a String.format("%.2f", reais), inclusive no meio centavo
+     * (1.005 vira "1.01", como no Formatter, que arredonda a representação
+     * decimal mais curta do double, e não o seu valor binário). NaN, infinito
+     * e valores fora de Dinheiro.MAXIMO_CENTAVOS vão direto para String.format.
+     */
+    public static String formatarReais(double reais) {
+        if (!Dinheiro.dentroDoIntervalo(reais)) {
+            return String.format("%.2f", reais);
+        }
+        double centavos = reais * 100.0;
+        double distancia_do_meio = Math.abs(centavos - Math.floor(centavos) - 0.5);
+        long arredondado = distancia_do_meio > 4 * Math.ulp(centavos)
+                ? Math.round(centavos)
+                // perto do meio centavo o produto em double não decide: arredonda o decimal, como o Formatter
+                : BigDecimal.valueOf(reais).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        if (arredondado == 0 && Double.doubleToRawLongBits(reais) < 0) {
+            // negativo que arredonda para zero: o Formatter escreve "-0.00"
+            return "-" + formatarValor(0);
+        }
+        return formatarValor(arredondado);
+    }
+
+    /** Equivale a DATA_HORA.format(DataHora.deEpochNanos(epoch_nanos)). */
+    public static String formatarDataHora(long epoch_nanos) {
+        char[] destino = new char[TAMANHO_DATA_HORA];
+        return new String(destino, 0, escreverDataHora(destino, 0, epoch_nanos));
+    }
+
+    /** Equivale a String.format("%.2f", centavos / 100.0). */
+    public static int escreverValor(char[] destino, int posicao, long centavos) {
+        if (centavos < 0) {
+            destino[posicao++] = '-';
+        }
+        // divisão antes do abs: funciona até para Long.MIN_VALUE
+        posicao = escreverInteiro(destino, posicao, Math.abs(centavos / 100));
+        int fracao = (int) Math.abs(centavos % 100);
+        destino[posicao++] = SEPARADOR_DECIMAL;
+        destino[posicao++] = (char) ('0' + fracao / 10);
+        destino[posicao++] = (char) ('0' + fracao % 10);
+        return posicao;
+    }
+
+    /** Inteiro não negativo em decimal, sem separador de milhar. */
+    public static int escreverInteiro(char[] destino, int posicao, long valor) {
+        int digitos = 1;
+        for (long resto = valor / 10; resto > 0; resto /= 10) {
+            digitos++;
+        }
+        int fim = posicao + digitos;
+        for (int i = fim - 1; i >= posicao; i--) {
+            destino[i] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+        return fim;
+    }
+
+    /** Equivale ao padrão "dd/MM/yyyy HH:mm:ss" aplicado a DataHora.deEpochNanos(epoch_nanos). */
+    public static int escreverDataHora(char[] destino, int posicao, long epoch_nanos) {
+        long segundos = Math.floorDiv(epoch_nanos, NANOS_POR_SEGUNDO);
+        long dias = Math.floorDiv(segundos, SEGUNDOS_POR_DIA);
+        int segundo_do_dia = Math.floorMod(segundos, SEGUNDOS_POR_DIA);
+
+        // dias desde 1970-01-01 -> ano/mês/dia no calendário gregoriano proléptico
+        // (algoritmo civil_from_days, eras de 400 anos começando em 1º de março)
+        long z = dias + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        int dia_da_era = (int) (z - era * 146_097);
+        int ano_da_era = (dia_da_era - dia_da_era / 1460 + dia_da_era / 36_524 - dia_da_era / 146_096) / 365;
+        int dia_do_ano = dia_da_era - (365 * ano_da_era + ano_da_era / 4 - ano_da_era / 100);
+        int mes_desde_marco = (5 * dia_do_ano + 2) / 153;
+        int dia = dia_do_ano - (153 * mes_desde_marco + 2) / 5 + 1;
+        int mes = mes_desde_marco < 10 ? mes_desde_marco + 3 : mes_desde_marco - 9;
+        long ano = ano_da_era + era * 400 + (mes <= 2 ? 1 : 0);
+
+        posicao = escreverDoisDigitos(destino, posicao, dia);
+        destino[posicao++] = '/';
+        posicao = escreverDoisDigitos(destino, posicao, mes);
+        destino[posicao++] = '/';
+        posicao = escreverDoisDigitos(destino, posicao, (int) (ano / 100));
+        posicao = escreverDoisDigitos(destino, posicao, (int) (ano % 100));
+        destino[posicao++] = ' ';
+        posicao = escreverDoisDigitos(destino, posicao, segundo_do_dia / 3600);
+        destino[posicao++] = ':';
+        posicao = escreverDoisDigitos(destino, posicao, segundo_do_dia / 60 % 60);
+        destino[posicao++] = ':';
+        return escreverDoisDigitos(destino, posicao, segundo_do_dia % 60);
+    }
+
+    private static int escreverDoisDigitos(char[] destino, int posicao, int valor) {
+        destino[posicao] = (char) ('0' + valor / 10);
+        destino[posicao + 1] = (char) ('0' + valor % 10);
+        return posicao + 2;
+    }
+}
@@ -0,0 +1,31 @@
+package br.univali.cc.prog3.banco.utilitario;
+
+/** Resultado de ValidaCPF.validarArquivo. */
+public class ResultadoValidacaoLote {
+    private final long total;
+    private final long validos;
+    private final long[] linhas_invalidas;
+
+    ResultadoValidacaoLote(long total, long validos, long[] linhas_invalidas) {
+        this.total = total;
+        this.validos = validos;
+        this.linhas_invalidas = linhas_invalidas;
+    }
+
+    public long obterTotal() {
+        return total;
+    }
+
+    public long obterValidos() {
+        return validos;
+    }
+
+    public long obterInvalidos() {
+        return total - validos;
+    }
+
+    /** Números (a partir de 1) das linhas rejeitadas, em ordem crescente. */
+    public long[] obterLinhasInvalidas() {
+        return linhas_invalidas.clone();
+    }
+}
@@ -1,40 +1,268 @@
 package br.univali.cc.prog3.banco.utilitario;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Validação de CPF sem regex, sem alocação e sem divisão: os dígitos são lidos
+ * como c - '0', a verificação de faixa e a de "todos os dígitos iguais" são
+ * acumuladas com operações de bits, e o resto da divisão por 11 sai de uma
+ * tabela indexada pela soma ponderada.
+ *
+ * Só dígitos ASCII são aceitos (a versão anterior, com Character.getNumericValue,
+ * também aceitava dígitos de outros alfabetos).
+ */
 public class ValidaCPF {
+    public static final int TAMANHO_CPF = 11;
+
+    private static final long TAMANHO_BLOCO_ARQUIVO = 16L * 1024 * 1024;
+    // 11 dígitos + \r + \n: o suficiente além do bloco para terminar a última linha
+    private static final int FOLGA_LINHA = TAMANHO_CPF + 2;
+
+    // maior soma possível: 9 * (11 + 10 + ... + 2) = 585
+    private static final byte[] DIGITO_POR_SOMA = new byte[586];
+
+    static {
+        for (int soma = 0; soma < DIGITO_POR_SOMA.length; soma++) {
+            int resto = soma % 11;
+            DIGITO_POR_SOMA[soma] = (byte) (resto < 2 ? 0 : 11 - resto);
+        }
+    }
+
     public static boolean validarCPF(String cpf) {
-        if (cpf == null || cpf.length() != 11) {
+        return cpf != null && validarCPF((CharSequence) cpf);
+    }
+
+    public static boolean validarCPF(CharSequence cpf) {
+        if (cpf.length() != TAMANHO_CPF) {
             return false;
         }
-        
-        if (cpf.matches("(\\d)\\1{10}")) {
+        int primeiro = cpf.charAt(0) - '0';
+        // soma_dv1 = Σ d[i]*(10-i), i<9; a soma do segundo dígito é derivada dela:
+        // Σ d[i]*(11-i), i<10 = soma_dv1 + Σ d[i] + 2*d[9]
+        int soma_dv1 = 0;
+        int soma_digitos = 0;
+        int fora_da_faixa = 0;
+        int diferentes = 0;
+        for (int i = 0; i < 9; i++) {
+            int d = cpf.charAt(i) - '0';
+            fora_da_faixa |= d | (9 - d);
+            diferentes |= d ^ primeiro;
+            soma_dv1 += d * (10 - i);
+            soma_digitos += d;
+        }
+        int dv1 = cpf.charAt(9) - '0';
+        int dv2 = cpf.charAt(10) - '0';
+        return verificar(primeiro, soma_dv1, soma_digitos, fora_da_faixa, diferentes, dv1, dv2);
+    }
+
+    /** Valida os 11 bytes ASCII a partir de inicio (sem exigir nada depois deles). */
+    public static boolean validarCPF(byte[] ascii, int inicio) {
+        if (inicio < 0 || inicio > ascii.length - TAMANHO_CPF) {
             return false;
         }
-        
+        int primeiro = ascii[inicio] - '0';
+        int soma_dv1 = 0;
+        int soma_digitos = 0;
+        int fora_da_faixa = 0;
+        int diferentes = 0;
+        for (int i = 0; i < 9; i++) {
+            int d = ascii[inicio + i] - '0';
+            fora_da_faixa |= d | (9 - d);
+            diferentes |= d ^ primeiro;
+            soma_dv1 += d * (10 - i);
+            soma_digitos += d;
+        }
+        int dv1 = ascii[inicio + 9] - '0';
+        int dv2 = ascii[inicio + 10] - '0';
+        return verificar(primeiro, soma_dv1, soma_digitos, fora_da_faixa, diferentes, dv1, dv2);
+    }
+
+    private static boolean verificar(int primeiro, int soma_dv1, int soma_digitos, int fora_da_faixa,
+            int diferentes, int dv1, int dv2) {
+        // algum dígito fora de 0..9 deixa d ou 9-d negativo, e o bit de sinal sobrevive ao |
+        fora_da_faixa |= dv1 | (9 - dv1) | dv2 | (9 - dv2);
+        diferentes |= (dv1 ^ primeiro) | (dv2 ^ primeiro);
+        return fora_da_faixa >= 0 && diferentes != 0
+                && DIGITO_POR_SOMA[soma_dv1] == dv1
+                && DIGITO_POR_SOMA[soma_dv1 + soma_digitos + 2 * dv1] == dv2;
+    }
+
+    /** Valida todos os CPFs em paralelo; resultado[i] corresponde a cpfs[i]. */
+    public static boolean[] validarEmLote(CharSequence[] cpfs) {
+        boolean[] resultado = new boolean[cpfs.length];
+        IntStream.range(0, cpfs.length).parallel()
+                .forEach(i -> resultado[i] = cpfs[i] != null && validarCPF(cpfs[i]));
+        return resultado;
+    }
+
+    /**
+     * Valida um arquivo com um CPF (11 dígitos, sem pontuação) por linha,
+     * aceitando fim de linha \n ou \r\n. O arquivo é mapeado em memória e
+     * dividido em blocos validados em paralelo.
+     */
+    public static ResultadoValidacaoLote validarArquivo(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            int blocos = (int) Math.max(1, (tamanho + TAMANHO_BLOCO_ARQUIVO - 1) / TAMANHO_BLOCO_ARQUIVO);
+            BlocoArquivo[] resultados = IntStream.range(0, blocos).parallel()
+                    .mapToObj(k -> validarBloco(canal, tamanho, k))
+                    .toArray(BlocoArquivo[]::new);
+            return juntar(resultados);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class BlocoArquivo {
+        int linhas;
+        int validas;
+        int[] invalidas = new int[16];
+        int total_invalidas;
+
+        void registrar_invalida(int linha_local) {
+            if (total_invalidas == invalidas.length) {
+                invalidas = Arrays.copyOf(invalidas, total_invalidas * 2);
+            }
+            invalidas[total_invalidas++] = linha_local;
+        }
+    }
+
+    /**
+     * Cada bloco processa as linhas que começam dentro dele. O mapeamento começa
+     * um byte antes (para saber se o bloco começa no início de uma linha) e vai
+     * FOLGA_LINHA bytes além (para validar a linha que atravessa o fim).
+     */
+    private static BlocoArquivo validarBloco(FileChannel canal, long tamanho_arquivo, int indice_bloco) {
+        long inicio = indice_bloco * TAMANHO_BLOCO_ARQUIVO;
+        long fim = Math.min(tamanho_arquivo, inicio + TAMANHO_BLOCO_ARQUIVO);
+        long inicio_mapa = Math.max(0, inicio - 1);
+        long fim_mapa = Math.min(tamanho_arquivo, fim + FOLGA_LINHA);
+        BlocoArquivo bloco = new BlocoArquivo();
+        if (inicio >= fim) {
+            return bloco;
+        }
+        MappedByteBuffer mapa;
         try {
-            int soma = 0;
-            for (int i = 0; i < 9; i++) {
-                soma += Character.getNumericValue(cpf.charAt(i)) * (10 - i);
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, inicio_mapa, fim_mapa - inicio_mapa);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limite_bloco = (int) (fim - inicio_mapa);
+        int limite_mapa = (int) (fim_mapa - inicio_mapa);
+        boolean fim_do_arquivo = fim_mapa == tamanho_arquivo;
+        byte[] cpf = new byte[TAMANHO_CPF];
+        int posicao = (int) (inicio - inicio_mapa);
+        if (inicio > 0 && mapa.get(0) != '\n') {
+            // a linha começou no bloco anterior: pula até o fim dela
+            while (posicao < limite_bloco && mapa.get(posicao) != '\n') {
+                posicao++;
             }
-            int resto = soma % 11;
-            int digito1 = (resto < 2) ? 0 : 11 - resto;
-            
-            if (digito1 != Character.getNumericValue(cpf.charAt(9))) {
-                return false;
+            posicao++;
+        }
+        while (posicao < limite_bloco) {
+            boolean valida = linhaValida(mapa, posicao, limite_mapa, fim_do_arquivo, cpf);
+            if (valida) {
+                bloco.validas++;
+            } else {
+                bloco.registrar_invalida(bloco.linhas);
             }
-            
-            soma = 0;
-            for (int i = 0; i < 10; i++) {
-                soma += Character.getNumericValue(cpf.charAt(i)) * (11 - i);
+            bloco.linhas++;
+            while (posicao < limite_bloco && mapa.get(posicao) != '\n') {
+                posicao++;
             }
-            resto = soma % 11;
-            int digito2 = (resto < 2) ? 0 : 11 - resto;
-            
-            return digito2 == Character.getNumericValue(cpf.charAt(10));
-        } catch (NumberFormatException e) {
+            posicao++;
+        }
+        return bloco;
+    }
+
+    private static boolean linhaValida(MappedByteBuffer mapa, int inicio, int limite, boolean fim_do_arquivo,
+            byte[] cpf) {
+        int depois = inicio + TAMANHO_CPF;
+        if (depois > limite) {
+            return false;
+        }
+        boolean terminou;
+        if (depois == limite) {
+            terminou = fim_do_arquivo;
+        } else if (mapa.get(depois) == '\r') {
+            terminou = depois + 1 == limite ? fim_do_arquivo : mapa.get(depois + 1) == '\n';
+        } else {
+            terminou = mapa.get(depois) == '\n';
+        }
+        if (!terminou) {
             return false;
         }
+        mapa.get(inicio, cpf);
+        return validarCPF(cpf, 0);
+    }
+
+    private static ResultadoValidacaoLote juntar(BlocoArquivo[] blocos) {
+        long linhas = 0;
+        long validas = 0;
+        int total_invalidas = 0;
+        for (BlocoArquivo bloco : blocos) {
+            total_invalidas += bloco.total_invalidas;
+        }
+        long[] invalidas = new long[total_invalidas];
+        int k = 0;
+        for (BlocoArquivo bloco : blocos) {
+            for (int i = 0; i < bloco.total_invalidas; i++) {
+                invalidas[k++] = linhas + bloco.invalidas[i] + 1;
+            }
+            linhas += bloco.linhas;
+            validas += bloco.validas;
+        }
+        return new ResultadoValidacaoLote(linhas, validas, invalidas);
+    }
+
+    /**
+     * CPF como número (os 11 dígitos em decimal, cabem em 37 bits), ou -1 se
+     * for inválido. O inverso é expandirCPF.
+     */
+    public static long compactarCPF(CharSequence cpf) {
+        if (cpf == null || !validarCPF(cpf)) {
+            return -1;
+        }
+        long compacto = 0;
+        for (int i = 0; i < TAMANHO_CPF; i++) {
+            compacto = compacto * 10 + (cpf.charAt(i) - '0');
+        }
+        return compacto;
+    }
+
+    /** Os 11 dígitos do CPF compacto, com zeros à esquerda. */
+    public static String expandirCPF(long compacto) {
+        char[] digitos = new char[TAMANHO_CPF];
+        escreverDigitos(compacto, digitos, 0, TAMANHO_CPF);
+        return new String(digitos);
+    }
+
+    /** Equivale a formatarCPF(expandirCPF(compacto)), sem a String intermediária. */
+    public static String formatarCPF(long compacto) {
+        char[] formatado = {'0', '0', '0', '.', '0', '0', '0', '.', '0', '0', '0', '-', '0', '0'};
+        escreverDigitos(compacto % 100, formatado, 12, 2);
+        compacto /= 100;
+        escreverDigitos(compacto % 1000, formatado, 8, 3);
+        compacto /= 1000;
+        escreverDigitos(compacto % 1000, formatado, 4, 3);
+        escreverDigitos(compacto / 1000, formatado, 0, 3);
+        return new String(formatado);
     }
-    
+
+    private static void escreverDigitos(long valor, char[] destino, int inicio, int quantidade) {
+        for (int i = inicio + quantidade - 1; i >= inicio; i--) {
+            destino[i] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+    }
+
     public static String formatarCPF(String cpf) {
         if (cpf == null || cpf.length() != 11) {
             return cpf;
@@ -42,4 +270,4 @@ public class ValidaCPF {
         return cpf.substring(0, 3) + "." + cpf.substring(3, 6) + "." + 
                cpf.substring(6, 9) + "-" + cpf.substring(9, 11);
     }
-}
\ No newline at end of file
+}
@@ -5,7 +5,7 @@ echo ====================================
 echo.
 
 echo Compilando classes...
-javac -cp src src/br/univali/cc/prog3/banco/dominio/*.java src/br/univali/cc/prog3/banco/excecao/*.java src/br/univali/cc/prog3/banco/utilitario/*.java src/TesteSistemaBancario.java
+javac -cp src src/br/univali/cc/prog3/banco/dominio/*.java src/br/univali/cc/prog3/banco/excecao/*.java src/br/univali/cc/prog3/banco/persistencia/*.java src/br/univali/cc/prog3/banco/utilitario/*.java src/TesteSistemaBancario.java
 
 if %errorlevel% neq 0 (
     echo ERRO: Falha na compilacao!